@@ -0,0 +1,195 @@
+package ru.yandex.practicum.filmorate.benchmarks;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Application context on a fresh in-memory H2 database seeded with a synthetic catalog.
+ * <p>
+ * Every user likes likesPerUser films and has friendsPerUser friends. Ids are spread deterministically,
+ * so consecutive users share part of their likes and friends, which gives the recommendation and
+ * common films queries real work to do. Film rates match the seeded likes.
+ */
+class BenchmarkCatalog implements AutoCloseable {
+    static final int GENRES = 6;
+    static final int MPA_RATINGS = 5;
+    static final int DIRECTORS = 100;
+    private static final int BATCH_SIZE = 10_000;
+
+    private final ConfigurableApplicationContext context;
+    private final JdbcTemplate jdbcTemplate;
+    private final int films;
+    private final int users;
+
+    private BenchmarkCatalog(ConfigurableApplicationContext context, int films, int users) {
+        this.context = context;
+        this.jdbcTemplate = context.getBean(JdbcTemplate.class);
+        this.films = films;
+        this.users = users;
+    }
+
+    static BenchmarkCatalog start(int films, int users, int likesPerUser, int friendsPerUser) {
+        return start(films, users, likesPerUser, friendsPerUser, "default");
+    }
+
+    static BenchmarkCatalog start(int films, int users, int likesPerUser, int friendsPerUser, String profile) {
+        return start(WebApplicationType.NONE, films, users, likesPerUser, friendsPerUser,
+                "--spring.profiles.active=" + profile);
+    }
+
+    /**
+     * Starts the application with its web server on a free port, see {@link #getPort}. The arguments
+     * are passed to the application after the benchmark ones, so they can override them.
+     */
+    static BenchmarkCatalog startServer(int films, int users, int likesPerUser, int friendsPerUser, String... args) {
+        return start(WebApplicationType.SERVLET, films, users, likesPerUser, friendsPerUser, args);
+    }
+
+    private static BenchmarkCatalog start(WebApplicationType type, int films, int users, int likesPerUser,
+                                          int friendsPerUser, String... args) {
+        List<String> arguments = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN"));
+        arguments.addAll(List.of(args));
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(type)
+                //Passed as arguments, since they have to take precedence over application.properties
+                .run(arguments.toArray(new String[0]));
+        BenchmarkCatalog catalog = new BenchmarkCatalog(context, films, users);
+        catalog.seed(likesPerUser, friendsPerUser);
+        return catalog;
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    <T> T getBean(String name, Class<T> type) {
+        return context.getBean(name, type);
+    }
+
+    int getFilms() {
+        return films;
+    }
+
+    int getUsers() {
+        return users;
+    }
+
+    int getPort() {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+
+    private void seed(int likesPerUser, int friendsPerUser) {
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        for (int id = 1; id <= users; id++) {
+            rows.add(new Object[]{id, "user" + id + "@mail.ru", "user" + id, "User " + id,
+                    Date.valueOf(LocalDate.of(1970 + id % 40, 1 + id % 12, 1 + id % 28))});
+            flushIfFull("INSERT INTO users(id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)", rows);
+        }
+        flush("INSERT INTO users(id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)", rows);
+
+        for (int id = 1; id <= DIRECTORS; id++) {
+            rows.add(new Object[]{id, "Director " + id});
+        }
+        flush("INSERT INTO directors(id, name) VALUES (?, ?)", rows);
+
+        int[] rates = new int[films + 1];
+        forEachPair(this::likedFilm, users, likesPerUser, (user, film) -> rates[film]++);
+        for (int id = 1; id <= films; id++) {
+            rows.add(new Object[]{id, "Film " + id, "Description of film " + id,
+                    Date.valueOf(LocalDate.of(1950 + id % 70, 1 + id % 12, 1 + id % 28)), 60 + id % 120,
+                    rates[id], 1 + id % MPA_RATINGS});
+            flushIfFull("INSERT INTO films(id, name, description, release_date, duration, rate, mpa_rate_id) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)", rows);
+        }
+        flush("INSERT INTO films(id, name, description, release_date, duration, rate, mpa_rate_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)", rows);
+
+        seedPairs("INSERT INTO films_genres(film_id, genre_id) VALUES (?, ?)", (film, i) -> 1 + film % GENRES,
+                films, 1);
+        seedPairs("INSERT INTO films_directors(film_id, director_id) VALUES (?, ?)",
+                (film, i) -> 1 + film % DIRECTORS, films, 1);
+        seedPairs("INSERT INTO films_likes(user_id, film_id) VALUES (?, ?)", this::likedFilm, users, likesPerUser);
+        seedPairs("INSERT INTO friendships(user_id, friend_id) VALUES (?, ?)", this::friend, users, friendsPerUser);
+
+        //Ids were inserted explicitly, so identities are moved past them for entities created later
+        jdbcTemplate.execute("ALTER TABLE users ALTER COLUMN id RESTART WITH " + (users + 1));
+        jdbcTemplate.execute("ALTER TABLE films ALTER COLUMN id RESTART WITH " + (films + 1));
+        jdbcTemplate.execute("ALTER TABLE directors ALTER COLUMN id RESTART WITH " + (DIRECTORS + 1));
+    }
+
+    int likedFilm(int user, int i) {
+        return 1 + (int) (((long) user * 7 + (long) i * 13) % films);
+    }
+
+    int friend(int user, int i) {
+        int friend = 1 + (user + i) % users;
+        return friend == user ? 1 + user % users : friend;
+    }
+
+    private void seedPairs(String query, PairGenerator generator, int owners, int perOwner) {
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        forEachPair(generator, owners, perOwner, (owner, target) -> {
+            rows.add(new Object[]{owner, target});
+            flushIfFull(query, rows);
+        });
+        flush(query, rows);
+    }
+
+    /**
+     * Generates (owner, target) pairs, skipping targets repeated for the same owner.
+     */
+    private static void forEachPair(PairGenerator generator, int owners, int perOwner, PairConsumer consumer) {
+        for (int owner = 1; owner <= owners; owner++) {
+            Set<Integer> seen = new HashSet<>();
+            for (int i = 0; i < perOwner; i++) {
+                int target = generator.apply(owner, i);
+                if (seen.add(target)) {
+                    consumer.accept(owner, target);
+                }
+            }
+        }
+    }
+
+    private void flushIfFull(String query, List<Object[]> rows) {
+        if (rows.size() >= BATCH_SIZE) {
+            flush(query, rows);
+        }
+    }
+
+    private void flush(String query, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(query, rows);
+            rows.clear();
+        }
+    }
+
+    @FunctionalInterface
+    private interface PairGenerator {
+        int apply(int owner, int i);
+    }
+
+    @FunctionalInterface
+    private interface PairConsumer {
+        void accept(int owner, int target);
+    }
+}
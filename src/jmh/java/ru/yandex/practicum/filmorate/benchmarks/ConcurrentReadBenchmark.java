@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read traffic from many threads at once, for comparing connection pool and H2 presets:
+ * {@code -p profile=default,highread}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(32)
+public class ConcurrentReadBenchmark {
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"default", "highread"})
+    private String profile;
+    @Param("10000")
+    private int films;
+    @Param("10000")
+    private int users;
+    @Param("20")
+    private int likesPerUser;
+    @Param("20")
+    private int friendsPerUser;
+
+    private BenchmarkCatalog catalog;
+    private FilmStorage filmStorage;
+    private UserStorage userStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        catalog = BenchmarkCatalog.start(films, users, likesPerUser, friendsPerUser, profile);
+        filmStorage = catalog.getBean("filmDbStorage", FilmStorage.class);
+        userStorage = catalog.getBean("userDbStorage", UserStorage.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        catalog.close();
+    }
+
+    @Benchmark
+    public Film findFilm() {
+        return filmStorage.findById(1 + ThreadLocalRandom.current().nextInt(catalog.getFilms()));
+    }
+
+    @Benchmark
+    public List<Film> getFilmsPage() {
+        return filmStorage.getPage(ThreadLocalRandom.current().nextInt(catalog.getFilms() - PAGE_SIZE), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public User findUser() {
+        return userStorage.findById(1 + ThreadLocalRandom.current().nextInt(catalog.getUsers()));
+    }
+}
@@ -0,0 +1,128 @@
+package ru.yandex.practicum.filmorate.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.enums.SearchParam;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Read paths of the film storage on a seeded catalog. Sizes are set with JMH parameters,
+ * e.g. -Djmh.args="-p films=1000000 -p users=100000 -p likesPerUser=100" for 10M likes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmStorageBenchmark {
+    @State(Scope.Benchmark)
+    public static class Catalog {
+        @Param("10000")
+        private int films;
+        @Param("10000")
+        private int users;
+        @Param("20")
+        private int likesPerUser;
+        @Param("20")
+        private int friendsPerUser;
+
+        private BenchmarkCatalog catalog;
+        private FilmStorage filmStorage;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            catalog = BenchmarkCatalog.start(films, users, likesPerUser, friendsPerUser);
+            filmStorage = catalog.getBean("filmDbStorage", FilmStorage.class);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            catalog.close();
+        }
+
+        private int randomUser() {
+            return 1 + ThreadLocalRandom.current().nextInt(catalog.getUsers());
+        }
+    }
+
+    /**
+     * Catalog of the page benchmark, sized on its own, since hydrating a page should cost the same
+     * whatever the size of the catalog. The other parameters are shared with {@link Catalog}.
+     */
+    @State(Scope.Benchmark)
+    public static class Page {
+        @Param({"1000", "10000", "100000"})
+        private int catalogFilms;
+        @Param("10000")
+        private int users;
+        @Param("20")
+        private int likesPerUser;
+        @Param("20")
+        private int friendsPerUser;
+        @Param({"10", "100", "1000"})
+        private int pageSize;
+
+        private BenchmarkCatalog catalog;
+        private FilmStorage filmStorage;
+        private List<Integer> ids;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            catalog = BenchmarkCatalog.start(catalogFilms, users, likesPerUser, friendsPerUser);
+            filmStorage = catalog.getBean("filmDbStorage", FilmStorage.class);
+            ids = IntStream.rangeClosed(1, Math.min(pageSize, catalogFilms)).boxed().collect(Collectors.toList());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            catalog.close();
+        }
+    }
+
+    @Benchmark
+    public List<Film> getFilmsTop(Catalog state) {
+        return state.filmStorage.getFilmsTop(10, -1, -1);
+    }
+
+    @Benchmark
+    public List<Film> getFilmsTopByGenreAndYear(Catalog state) {
+        return state.filmStorage.getFilmsTop(10, 1, 1990);
+    }
+
+    @Benchmark
+    public List<Film> searchFilmByTitle(Catalog state) {
+        return state.filmStorage.searchFilm("film 12", List.of(SearchParam.TITLE));
+    }
+
+    @Benchmark
+    public List<Film> searchFilmByTitleAndDirector(Catalog state) {
+        return state.filmStorage.searchFilm("tor 4", List.of(SearchParam.TITLE, SearchParam.DIRECTOR));
+    }
+
+    @Benchmark
+    public List<Film> getCommonFilms(Catalog state) {
+        int user = state.randomUser();
+        return state.filmStorage.getCommonFilms(user, state.catalog.friend(user, 0));
+    }
+
+    /**
+     * Hydration of a page of films with genres, directors and likes, the cost every list endpoint pays.
+     */
+    @Benchmark
+    public List<Film> getFilmsByIdList(Page state) {
+        return state.filmStorage.getFilmsByIdList(state.ids);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Film> getAll(Catalog state) {
+        return state.filmStorage.getAll();
+    }
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The like path through the service: like insert, rate update, popularity index and feed event.
+ * Every operation likes a film and takes the like back, so the catalog does not drift between iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class LikeBenchmark {
+    @Param("10000")
+    private int films;
+    @Param("10000")
+    private int users;
+    @Param("20")
+    private int likesPerUser;
+
+    private BenchmarkCatalog catalog;
+    private FilmService filmService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        catalog = BenchmarkCatalog.start(films, users, likesPerUser, 0);
+        filmService = catalog.getBean(FilmService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        catalog.close();
+    }
+
+    @Benchmark
+    public void addAndDeleteLike(ThreadUser threadUser) {
+        int film = 1 + ThreadLocalRandom.current().nextInt(catalog.getFilms());
+        filmService.addLike(film, threadUser.id);
+        filmService.deleteLike(film, threadUser.id);
+    }
+
+    /**
+     * Each benchmark thread likes as its own user, so threads never hit the same (film, user) pair.
+     * The users are created after seeding and have no likes of their own.
+     */
+    @State(Scope.Thread)
+    public static class ThreadUser {
+        private int id;
+
+        @Setup(Level.Trial)
+        public void setUp(LikeBenchmark benchmark) {
+            id = benchmark.catalog.getBean(UserService.class).createUser(newUser()).getId();
+        }
+
+        private static User newUser() {
+            User user = new User();
+            user.setEmail("bench" + Thread.currentThread().getId() + "@mail.ru");
+            user.setLogin("bench" + Thread.currentThread().getId());
+            user.setName("Benchmark user");
+            user.setBirthday(LocalDate.of(1990, 1, 1));
+            return user;
+        }
+    }
+}
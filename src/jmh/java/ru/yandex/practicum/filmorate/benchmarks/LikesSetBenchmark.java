@@ -0,0 +1,148 @@
+package ru.yandex.practicum.filmorate.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.SortedIntSet;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Cost of the like and friend id sets filled for every entity of a list response, for the former HashSet
+ * and for {@link SortedIntSet}: building them from ids in database or in random order, serializing them
+ * to JSON, and serializing the films getAll() returns for a seeded catalog with the application's ObjectMapper.
+ * Run with -prof gc, the gc.alloc.rate.norm of the build benchmark is the heap taken by the sets.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LikesSetBenchmark {
+    private static final String HASH_SET = "HashSet";
+
+    @State(Scope.Benchmark)
+    public static class Sets {
+        @Param({HASH_SET, "SortedIntSet"})
+        private String implementation;
+        @Param("1000")
+        private int films;
+        @Param({"10", "1000"})
+        private int likesPerFilm;
+        @Param({"ascending", "random"})
+        private String order;
+
+        private final ObjectMapper objectMapper = new ObjectMapper();
+        private int[] userIds;
+        private List<Set<Integer>> sets;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            List<Integer> ids = new ArrayList<>(likesPerFilm);
+            for (int user = 1; user <= likesPerFilm; user++) {
+                ids.add(user * 3);
+            }
+            if ("random".equals(order)) {
+                Collections.shuffle(ids, new Random(42));
+            }
+            userIds = ids.stream().mapToInt(Integer::intValue).toArray();
+            sets = buildSets(this);
+        }
+    }
+
+    /**
+     * Films of a seeded catalog as getAll() returns them, and the same films with likes copied to a HashSet.
+     */
+    @State(Scope.Benchmark)
+    public static class Catalog {
+        @Param({HASH_SET, "SortedIntSet"})
+        private String implementation;
+        @Param("10000")
+        private int catalogFilms;
+        @Param("10000")
+        private int users;
+        @Param("20")
+        private int likesPerUser;
+
+        private BenchmarkCatalog catalog;
+        private ObjectMapper objectMapper;
+        private List<Film> films;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            catalog = BenchmarkCatalog.start(catalogFilms, users, likesPerUser, 0);
+            objectMapper = catalog.getBean(ObjectMapper.class);
+            films = catalog.getBean("filmDbStorage", FilmStorage.class).getAll();
+            if (HASH_SET.equals(implementation)) {
+                films = films.stream().map(HashSetLikesFilm::new).collect(Collectors.toList());
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            catalog.close();
+        }
+    }
+
+    @Benchmark
+    public List<Set<Integer>> build(Sets state) {
+        return buildSets(state);
+    }
+
+    @Benchmark
+    public byte[] serialize(Sets state) throws JsonProcessingException {
+        return state.objectMapper.writeValueAsBytes(state.sets);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public byte[] serializeAllFilms(Catalog state) throws JsonProcessingException {
+        return state.objectMapper.writeValueAsBytes(state.films);
+    }
+
+    private static List<Set<Integer>> buildSets(Sets state) {
+        List<Set<Integer>> result = new ArrayList<>(state.films);
+        for (int film = 0; film < state.films; film++) {
+            Set<Integer> likes = HASH_SET.equals(state.implementation) ? new HashSet<>() : new SortedIntSet();
+            for (int userId : state.userIds) {
+                likes.add(userId);
+            }
+            result.add(likes);
+        }
+        return result;
+    }
+
+    /**
+     * Film with likes held in a HashSet of boxed ids, as the model kept them before {@link SortedIntSet}.
+     */
+    private static class HashSetLikesFilm extends Film {
+        private final Set<Integer> likes;
+
+        HashSetLikesFilm(Film film) {
+            setId(film.getId());
+            setName(film.getName());
+            setDescription(film.getDescription());
+            setReleaseDate(film.getReleaseDate());
+            setDuration(film.getDuration());
+            setRate(film.getRate());
+            setMpa(film.getMpa());
+            setGenres(film.getGenres());
+            setDirectors(film.getDirectors());
+            likes = new HashSet<>(film.getLikes());
+        }
+
+        @Override
+        public Set<Integer> getLikes() {
+            return likes;
+        }
+    }
+}
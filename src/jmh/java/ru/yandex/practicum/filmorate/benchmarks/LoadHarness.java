@@ -0,0 +1,258 @@
+package ru.yandex.practicum.filmorate.benchmarks;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load test of the request executor models. For every model the application is started
+ * with its web server on a seeded in-memory catalog, then the given number of clients, each on a connection
+ * of its own, repeat GET /films/popular, PUT /films/{id}/like/{userId}, GET /films/popular and
+ * DELETE /films/{id}/like/{userId} for the duration, every client on its own film and user.
+ * Throughput and latency percentiles of every endpoint are printed per model once the warm-up is over.
+ * <p>
+ * Models: {@code platform}, Tomcat's thread pool, {@code virtual}, the virtual-threads profile, which needs
+ * a JDK 21 runtime and is skipped on older ones, and {@code reactive}, the reactive profile, whose clients ask
+ * for the top films as an NDJSON stream read over R2DBC. All run with the same pool and connection limits,
+ * so only the executor or the read path differs. Options are given as {@code --name=value}, see {@link #DEFAULTS}.
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec@load -Dload.args="--connections=5000 --duration=60"
+ * </pre>
+ */
+public class LoadHarness {
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+    private static final Map<String, String> PROFILES = Map.of("platform", "default", "virtual", "virtual-threads",
+            "reactive", "reactive");
+
+    static {
+        DEFAULTS.put("models", "platform,virtual,reactive");
+        DEFAULTS.put("connections", "5000");
+        DEFAULTS.put("warmup", "15");
+        DEFAULTS.put("duration", "30");
+        DEFAULTS.put("pool-size", "16");
+        DEFAULTS.put("films", "10000");
+        DEFAULTS.put("users", "10000");
+        DEFAULTS.put("likes-per-user", "20");
+        DEFAULTS.put("friends-per-user", "10");
+    }
+
+    private final Map<String, String> options;
+    private final int connections;
+
+    private LoadHarness(Map<String, String> options) {
+        this.options = options;
+        this.connections = intOption("connections");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            if (!DEFAULTS.containsKey(option[0]) || option.length != 2) {
+                throw new IllegalArgumentException("unknown option " + arg + ", options are " + DEFAULTS);
+            }
+            options.put(option[0], option[1]);
+        }
+        LoadHarness harness = new LoadHarness(options);
+        for (String model : options.get("models").split(",")) {
+            harness.run(model.trim());
+        }
+        System.exit(0);
+    }
+
+    private void run(String model) throws InterruptedException {
+        String profile = PROFILES.get(model);
+        if (profile == null) {
+            throw new IllegalArgumentException("unknown model " + model + ", models are " + PROFILES.keySet());
+        }
+        if (model.equals("virtual") && Runtime.version().feature() < 21) {
+            System.out.printf("%s: skipped, virtual threads need JDK 21 or later, running on %s%n", model,
+                    Runtime.version());
+            return;
+        }
+        int films = intOption("films");
+        int users = intOption("users");
+        String poolSize = options.get("pool-size");
+        BenchmarkCatalog catalog;
+        try {
+            catalog = BenchmarkCatalog.startServer(films, users, intOption("likes-per-user"),
+                    intOption("friends-per-user"),
+                    "--spring.profiles.active=" + profile,
+                    "--server.tomcat.max-connections=" + Math.max(10_000, connections * 2),
+                    "--server.tomcat.accept-count=1000",
+                    "--filmorate.datasource.pool.maximum-size=" + poolSize,
+                    "--filmorate.datasource.pool.minimum-idle=" + poolSize,
+                    "--filmorate.datasource.pool.connection-timeout=60s");
+        } catch (RuntimeException e) {
+            System.out.printf("%s: skipped, the application did not start: %s%n", model, rootCause(e).getMessage());
+            return;
+        }
+
+        ExecutorService clientThreads = Executors.newFixedThreadPool(4);
+        try (catalog) {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(clientThreads)
+                    .connectTimeout(Duration.ofSeconds(60))
+                    .build();
+            String base = "http://localhost:" + catalog.getPort();
+            String accept = model.equals("reactive") ? "application/x-ndjson" : "application/json";
+            Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+            endpoints.put("GET /films/popular", new Endpoint());
+            endpoints.put("PUT /films/{id}/like/{userId}", new Endpoint());
+            endpoints.put("DELETE /films/{id}/like/{userId}", new Endpoint());
+
+            Client[] clients = new Client[connections];
+            for (int i = 0; i < connections; i++) {
+                clients[i] = new Client(client, base, endpoints, 1 + i % films, 1 + (i * 7 + 3) % users, accept);
+                clients[i].next();
+            }
+
+            TimeUnit.SECONDS.sleep(intOption("warmup"));
+            endpoints.values().forEach(Endpoint::start);
+            long start = System.nanoTime();
+            TimeUnit.SECONDS.sleep(intOption("duration"));
+            double seconds = (System.nanoTime() - start) / 1e9;
+            endpoints.values().forEach(Endpoint::stop);
+            for (Client c : clients) {
+                c.stopped = true;
+            }
+            //Lets the requests in flight complete before the application is closed
+            long drainUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+            while (Client.IN_FLIGHT.get() > 0 && System.nanoTime() < drainUntil) {
+                TimeUnit.MILLISECONDS.sleep(100);
+            }
+
+            System.out.printf("%n%s executor, %d connections, %.0f s%n", model, connections, seconds);
+            System.out.printf("%-34s %10s %10s %8s %10s %10s %10s %10s%n",
+                    "endpoint", "requests", "req/s", "errors", "p50 ms", "p99 ms", "p999 ms", "max ms");
+            endpoints.forEach((name, endpoint) -> endpoint.print(name, seconds));
+        } finally {
+            clientThreads.shutdownNow();
+        }
+    }
+
+    private int intOption(String name) {
+        return Integer.parseInt(options.get(name));
+    }
+
+    private static Throwable rootCause(Throwable e) {
+        while (e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+    /**
+     * One simulated user on its own connection, sending the next request as soon as the previous one
+     * is answered.
+     */
+    private static class Client {
+        static final AtomicInteger IN_FLIGHT = new AtomicInteger();
+
+        private final HttpClient client;
+        private final List<HttpRequest> requests;
+        private final List<Endpoint> endpoints;
+        private int step;
+        private volatile boolean stopped;
+
+        Client(HttpClient client, String base, Map<String, Endpoint> endpoints, int filmId, int userId,
+               String accept) {
+            this.client = client;
+            HttpRequest popular = request(base + "/films/popular?count=10", "GET", accept);
+            String like = base + "/films/" + filmId + "/like/" + userId;
+            this.requests = List.of(popular, request(like, "PUT", accept),
+                    popular, request(like, "DELETE", accept));
+            Endpoint popularEndpoint = endpoints.get("GET /films/popular");
+            this.endpoints = List.of(popularEndpoint, endpoints.get("PUT /films/{id}/like/{userId}"),
+                    popularEndpoint, endpoints.get("DELETE /films/{id}/like/{userId}"));
+        }
+
+        void next() {
+            if (stopped) {
+                return;
+            }
+            int current = step;
+            step = (step + 1) % requests.size();
+            long start = System.nanoTime();
+            IN_FLIGHT.incrementAndGet();
+            CompletableFuture<HttpResponse<Void>> response =
+                    client.sendAsync(requests.get(current), HttpResponse.BodyHandlers.discarding());
+            response.whenComplete((result, error) -> {
+                IN_FLIGHT.decrementAndGet();
+                boolean ok = error == null && result.statusCode() < 300;
+                endpoints.get(current).record(System.nanoTime() - start, ok);
+                next();
+            });
+        }
+
+        private static HttpRequest request(String uri, String method, String accept) {
+            return HttpRequest.newBuilder(URI.create(uri))
+                    .method(method, HttpRequest.BodyPublishers.noBody())
+                    .header("Accept", accept)
+                    .timeout(Duration.ofSeconds(120))
+                    .build();
+        }
+    }
+
+    /**
+     * Latencies of the requests to one endpoint completed while measuring.
+     */
+    private static class Endpoint {
+        private final AtomicLong errors = new AtomicLong();
+        private volatile boolean measuring;
+        private long[] latencies = new long[1 << 16];
+        private int size;
+
+        void start() {
+            measuring = true;
+        }
+
+        void stop() {
+            measuring = false;
+        }
+
+        void record(long nanos, boolean ok) {
+            if (!measuring) {
+                return;
+            }
+            if (!ok) {
+                errors.incrementAndGet();
+            }
+            synchronized (this) {
+                if (size == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, size * 2);
+                }
+                latencies[size++] = nanos;
+            }
+        }
+
+        synchronized void print(String name, double seconds) {
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            System.out.printf("%-34s %10d %10.0f %8d %10.1f %10.1f %10.1f %10.1f%n", name, size, size / seconds,
+                    errors.get(), millis(sorted, 0.5), millis(sorted, 0.99), millis(sorted, 0.999),
+                    millis(sorted, 1.0));
+        }
+
+        private static double millis(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmRecommendationEngine;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Friends and recommendation queries of the user storage on a seeded catalog, and the in-memory
+ * recommendation engine for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserStorageBenchmark {
+    @Param("10000")
+    private int films;
+    @Param("100000")
+    private int users;
+    @Param("20")
+    private int likesPerUser;
+    @Param("20")
+    private int friendsPerUser;
+
+    private BenchmarkCatalog catalog;
+    private UserStorage userStorage;
+    private FilmRecommendationEngine recommendationEngine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        catalog = BenchmarkCatalog.start(films, users, likesPerUser, friendsPerUser);
+        userStorage = catalog.getBean("userDbStorage", UserStorage.class);
+        recommendationEngine = catalog.getBean(FilmRecommendationEngine.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        catalog.close();
+    }
+
+    @Benchmark
+    public List<User> getMutualFriendsSet() {
+        int user = randomUser();
+        return userStorage.getMutualFriendsSet(user, catalog.friend(user, 0));
+    }
+
+    @Benchmark
+    public List<Integer> getIdUsersWithSimilarInterests() {
+        return userStorage.getIdUsersWithSimilarInterests(randomUser());
+    }
+
+    @Benchmark
+    public List<Integer> recommendFromEngine() {
+        return recommendationEngine.recommend(randomUser(), 10);
+    }
+
+    private int randomUser() {
+        return 1 + ThreadLocalRandom.current().nextInt(catalog.getUsers());
+    }
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Most statements a request to the endpoint may send to the database, not counting the one-off loads
+ * of in-memory indexes and caches. Checked by {@link ru.yandex.practicum.filmorate.handler.DbRoundtripFilter}.
+ */
+@Target(METHOD)
+@Retention(RUNTIME)
+@Documented
+public @interface DbRoundtripBudget {
+    int value();
+}
@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.storage.JdbcRoundTrips;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Hikari pool over the {@code spring.datasource.*} connection settings, tuned by {@link DataSourceTuningProperties}.
+ * Pool usage is published as {@code hikaricp.connections.*} metrics under the pool name. Every data source
+ * of the context is wrapped to count statements in {@link JdbcRoundTrips}.
+ */
+@Configuration
+@Slf4j
+@EnableConfigurationProperties(DataSourceTuningProperties.class)
+public class DataSourceConfig {
+
+    @Bean
+    public HikariDataSource dataSource(DataSourceProperties connection, DataSourceTuningProperties tuning) {
+        HikariDataSource dataSource = connection.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(withH2Options(connection.determineUrl(), tuning.getH2()))
+                .build();
+
+        DataSourceTuningProperties.Pool pool = tuning.getPool();
+        dataSource.setPoolName(pool.getName());
+        dataSource.setMaximumPoolSize(pool.getMaximumSize());
+        dataSource.setMinimumIdle(Math.min(pool.getMinimumIdle(), pool.getMaximumSize()));
+        dataSource.setConnectionTimeout(pool.getConnectionTimeout().toMillis());
+        dataSource.setIdleTimeout(pool.getIdleTimeout().toMillis());
+        dataSource.setMaxLifetime(pool.getMaxLifetime().toMillis());
+        log.info("connection pool '{}' of up to {} connections to {}", pool.getName(), pool.getMaximumSize(),
+                dataSource.getJdbcUrl());
+
+        return dataSource;
+    }
+
+    @Bean
+    public static BeanPostProcessor roundTripCountingDataSource() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource ? JdbcRoundTrips.counting((DataSource) bean) : bean;
+            }
+        };
+    }
+
+    @Bean
+    public JdbcTemplate jdbcTemplate(DataSource dataSource, DataSourceTuningProperties tuning) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(tuning.getFetchSize());
+        return jdbcTemplate;
+    }
+
+    /**
+     * Appends the configured H2 settings to an H2 url, skipping the ones the url already sets.
+     */
+    static String withH2Options(String url, DataSourceTuningProperties.H2 h2) {
+        if (url == null || !url.startsWith("jdbc:h2:")) {
+            return url;
+        }
+        Map<String, Object> options = new LinkedHashMap<>();
+        options.put("CACHE_SIZE", h2.getCacheSize());
+        options.put("QUERY_CACHE_SIZE", h2.getStatementCacheSize());
+        options.put("WRITE_DELAY", millis(h2.getWriteDelay()));
+        options.put("LOCK_TIMEOUT", millis(h2.getLockTimeout()));
+        //A TCP server makes no sense for in-memory databases, H2 rejects the option for them
+        if (h2.isAutoServer() && !url.startsWith("jdbc:h2:mem:")) {
+            options.put("AUTO_SERVER", "TRUE");
+        }
+
+        String upperUrl = url.toUpperCase(Locale.ROOT);
+        StringBuilder result = new StringBuilder(url);
+        options.forEach((name, value) -> {
+            if (value != null && !upperUrl.contains(";" + name + "=")) {
+                result.append(';').append(name).append('=').append(value);
+            }
+        });
+        return result.toString();
+    }
+
+    private static Long millis(Duration duration) {
+        return duration == null ? null : duration.toMillis();
+    }
+}
@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
+import java.time.Duration;
+
+/**
+ * Tuning of the connection pool, JDBC statements and the embedded H2 database, bound from
+ * {@code filmorate.datasource.*}. H2 options left unset keep the database defaults, options already present
+ * in {@code spring.datasource.url} take precedence over the ones set here.
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "filmorate.datasource")
+public class DataSourceTuningProperties {
+    @Valid
+    private final Pool pool = new Pool();
+    @Valid
+    private final H2 h2 = new H2();
+    /**
+     * Rows fetched per round trip by JdbcTemplate queries, -1 for the driver default.
+     */
+    private int fetchSize = -1;
+
+    @Data
+    public static class Pool {
+        private String name = "filmorate";
+        @Positive
+        private int maximumSize = 10;
+        @PositiveOrZero
+        private int minimumIdle = 10;
+        private Duration connectionTimeout = Duration.ofSeconds(30);
+        private Duration idleTimeout = Duration.ofMinutes(10);
+        private Duration maxLifetime = Duration.ofMinutes(30);
+    }
+
+    @Data
+    public static class H2 {
+        /**
+         * Page cache size in KB (CACHE_SIZE).
+         */
+        @Positive
+        private Integer cacheSize;
+        /**
+         * Parsed statements kept per session (QUERY_CACHE_SIZE), H2 keeps 8 by default.
+         */
+        @PositiveOrZero
+        private Integer statementCacheSize;
+        /**
+         * Delay before committed changes are written to disk (WRITE_DELAY).
+         */
+        private Duration writeDelay;
+        /**
+         * How long a statement waits for a lock held by another session (LOCK_TIMEOUT).
+         */
+        private Duration lockTimeout;
+        /**
+         * Mixed mode: the first process opening a file database starts a TCP server on it, so that other
+         * processes, such as an SQL console, can connect with the same URL (AUTO_SERVER).
+         */
+        private boolean autoServer;
+    }
+}
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.configuration;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.IdBitmap;
+
+@Configuration
+public class IdBitmapConfig {
+    @Bean
+    public IdBitmap<Film> filmIds(JdbcTemplate jdbcTemplate) {
+        return new IdBitmap<>(jdbcTemplate, "films");
+    }
+
+    @Bean
+    public IdBitmap<User> userIds(JdbcTemplate jdbcTemplate) {
+        return new IdBitmap<>(jdbcTemplate, "users");
+    }
+}
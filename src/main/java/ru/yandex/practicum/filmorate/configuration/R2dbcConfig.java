@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Non-blocking connections of the {@code reactive} profile to the database of the JDBC pool. The url is taken
+ * from the Hikari pool, H2 options included, so both open the same database in this JVM. The pool is sized
+ * by the same {@code filmorate.datasource.pool.*} properties as the JDBC one.
+ * <p>
+ * Spring Boot's R2DBC auto-configuration is excluded in {@code application.properties}, its reactive
+ * transaction manager would leave {@code @Transactional} methods with two candidates.
+ */
+@Configuration
+@Profile("reactive")
+@Slf4j
+public class R2dbcConfig {
+    private static final String H2_PREFIX = "jdbc:h2:";
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool connectionFactory(DataSource dataSource, DataSourceProperties connection,
+                                            DataSourceTuningProperties tuning) throws SQLException {
+        String url = dataSource.unwrap(HikariDataSource.class).getJdbcUrl();
+        if (!url.startsWith(H2_PREFIX)) {
+            throw new IllegalStateException("the reactive profile supports H2 databases only, url is " + url);
+        }
+        H2ConnectionConfiguration.Builder h2 = H2ConnectionConfiguration.builder()
+                .url(url.substring(H2_PREFIX.length()))
+                .username(connection.determineUsername());
+        String password = connection.determinePassword();
+        if (password != null) {
+            h2.password(password);
+        }
+
+        DataSourceTuningProperties.Pool pool = tuning.getPool();
+        String name = pool.getName() + "-r2dbc";
+        ConnectionPoolConfiguration configuration = ConnectionPoolConfiguration
+                .builder(new H2ConnectionFactory(h2.build()))
+                .name(name)
+                .initialSize(Math.min(pool.getMinimumIdle(), pool.getMaximumSize()))
+                .maxSize(pool.getMaximumSize())
+                .maxAcquireTime(pool.getConnectionTimeout())
+                .maxIdleTime(pool.getIdleTimeout())
+                .maxLifeTime(pool.getMaxLifetime())
+                .build();
+        log.info("r2dbc pool '{}' of up to {} connections to {}", name, pool.getMaximumSize(), url);
+
+        return new ConnectionPool(configuration);
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(ConnectionFactory connectionFactory) {
+        return DatabaseClient.create(connectionFactory);
+    }
+}
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaCategory;
+import ru.yandex.practicum.filmorate.storage.AbstractDictionary;
+import ru.yandex.practicum.filmorate.storage.DictionaryCache;
+
+import java.time.Duration;
+
+@Configuration
+public class ReferenceDataConfig {
+    @Bean
+    public DictionaryCache<Genre> genreCache(AbstractDictionary<Genre> genreStorage,
+                                             ObjectMapper objectMapper,
+                                             @Value("${filmorate.reference-cache.ttl:5m}") Duration ttl) {
+        return new DictionaryCache<>(genreStorage, Genre::getId, objectMapper, ttl);
+    }
+
+    @Bean
+    public DictionaryCache<MpaCategory> mpaCache(AbstractDictionary<MpaCategory> mpaStorage,
+                                                 ObjectMapper objectMapper,
+                                                 @Value("${filmorate.reference-cache.ttl:5m}") Duration ttl) {
+        return new DictionaryCache<>(mpaStorage, MpaCategory::getId, objectMapper, ttl);
+    }
+}
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs every request on a virtual thread of its own instead of Tomcat's platform thread pool, so requests
+ * blocked on JDBC calls do not hold a pooled thread. The number of requests in flight is then bounded by
+ * {@code server.tomcat.max-connections} and the database work by the Hikari pool, which is sized on its own
+ * in {@code application-virtual-threads.properties}.
+ * <p>
+ * Virtual threads need a JDK 21 runtime, build with the {@code jdk21} Maven profile. The executor is looked up
+ * reflectively, so that the sources still compile for Java 11, and the profile fails at startup on older JDKs.
+ */
+@Configuration
+@Profile("virtual-threads")
+@Slf4j
+public class VirtualThreadsConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadPerRequestExecutor() {
+        return newVirtualThreadPerTaskExecutor();
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandler(
+            ExecutorService virtualThreadPerRequestExecutor) {
+        log.info("requests run on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadPerRequestExecutor);
+    }
+
+    /**
+     * Executor of asynchronous MVC handlers, e.g. the streamed film export, in place of the default pool.
+     */
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor(ExecutorService virtualThreadPerRequestExecutor) {
+        return new TaskExecutorAdapter(virtualThreadPerRequestExecutor);
+    }
+
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("the virtual-threads profile needs JDK 21 or later, running on "
+                    + System.getProperty("java.version"), e);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("virtual thread executor can not be created", e);
+        }
+    }
+}
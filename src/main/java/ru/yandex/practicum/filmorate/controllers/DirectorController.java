@@ -5,6 +5,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.annotations.DbRoundtripBudget;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.service.DirectorService;
 
@@ -20,6 +21,7 @@ public class DirectorController {
     private final DirectorService directorService;
 
     @GetMapping
+    @DbRoundtripBudget(1)
     @ResponseStatus(HttpStatus.OK)
     @Operation(summary = "Returns all Directors")
     public List<Director> getAll() {
@@ -27,6 +29,7 @@ public class DirectorController {
     }
 
     @GetMapping("/{id}")
+    @DbRoundtripBudget(1)
     @ResponseStatus(HttpStatus.OK)
     @Operation(summary = "Returns Director by id")
     public Director findById(@PathVariable int id) {
@@ -34,6 +37,7 @@ public class DirectorController {
     }
 
     @PostMapping
+    @DbRoundtripBudget(1)
     @ResponseStatus(HttpStatus.CREATED)
     @Operation(summary = "Creates new director")
     public Director create(@Valid @RequestBody Director director) {
@@ -41,6 +45,7 @@ public class DirectorController {
     }
 
     @PutMapping
+    @DbRoundtripBudget(1)
     @ResponseStatus(HttpStatus.OK)
     @Operation(summary = "updates director if exists")
     public Director update(@Valid @RequestBody Director director) {
@@ -48,6 +53,7 @@ public class DirectorController {
     }
 
     @DeleteMapping("/{id}")
+    @DbRoundtripBudget(2)
     @ResponseStatus(HttpStatus.OK)
     @Operation(summary = "deletes director by id if exists")
     public void delete(@PathVariable int id) {
@@ -1,83 +1,130 @@
 package ru.yandex.practicum.filmorate.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.annotations.DbRoundtripBudget;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.enums.View;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.PageLimits;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
 @RequestMapping("/films")
 @Tag(name = "Operations with films")
 public class FilmController {
+    private static final String NDJSON = "application/x-ndjson";
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, ObjectMapper objectMapper) {
         this.filmService = filmService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
-    @Operation(summary = "Returns all films")
-    public List<Film> getFilms() {
-        return filmService.getAllFilms();
+    @DbRoundtripBudget(2)
+    @Operation(summary = "Returns all films, or a page of films ordered by id if 'after' or 'limit' is set. " +
+            "Likes are left out with view=summary")
+    public ResponseEntity<List<Film>> getFilms(@RequestParam(value = "after", required = false) String after,
+                                               @RequestParam(value = "limit", required = false) Integer limit,
+                                               @RequestParam(value = "view", defaultValue = "full") String view) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(filmService.getAllFilms(View.valueOfLabel(view)));
+        }
+        int pageSize = PageLimits.resolve(limit);
+        List<Film> page = filmService.getFilmsPage(KeysetCursor.decode(after), pageSize, View.valueOfLabel(view));
+        return KeysetCursor.toResponse(page, pageSize, Film::getId);
+    }
+
+    @GetMapping(value = "/export", produces = NDJSON)
+    @Operation(summary = "Streams all films as newline-delimited JSON")
+    public ResponseEntity<StreamingResponseBody> exportFilms() {
+        StreamingResponseBody body = out -> filmService.exportFilms(film -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(film));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
     }
 
     @GetMapping("/{id}")
+    @DbRoundtripBudget(2)
     @Operation(summary = "returns film by id if exists")
     public Film findById(@PathVariable Integer id) {
         return filmService.findFilmById(id);
     }
 
     @PostMapping
+    @DbRoundtripBudget(2)
     @Operation(summary = "creates new film")
     public Film createFilm(@Valid @RequestBody Film film) {
         return filmService.createFilm(film);
     }
 
     @PutMapping
+    @DbRoundtripBudget(4)
     @Operation(summary = "updates film if exists")
     public Film updateFilm(@Valid @RequestBody Film film) {
         return filmService.updateFilm(film);
     }
 
     @PutMapping("/{filmId}/like/{userId}")
+    @DbRoundtripBudget(3)
     @Operation(summary = "adds like to film from user if both exists")
     public void addLike(@PathVariable Integer filmId, @PathVariable Integer userId) {
         filmService.addLike(filmId, userId);
     }
 
     @DeleteMapping("/{filmId}/like/{userId}")
+    @DbRoundtripBudget(3)
     @Operation(summary = "deletes like to film from user if both exists")
     public void deleteLike(@PathVariable Integer filmId, @PathVariable Integer userId) {
         filmService.deleteLike(filmId, userId);
     }
 
     @GetMapping("/popular")
-    @Operation(summary = "returns top-N films by rate")
+    @DbRoundtripBudget(2)
+    @Operation(summary = "returns top-N films by rate, without likes if view=summary")
     public List<Film> getFilmsTop(@RequestParam(value = "count", defaultValue = "10", required = false) Integer count,
                                   @RequestParam(value = "genreId", defaultValue = "-1", required = false) Integer genreId,
-                                  @RequestParam(value = "year", defaultValue = "-1", required = false) Integer year) {
-        return filmService.getFilmsTop(count, genreId, year);
+                                  @RequestParam(value = "year", defaultValue = "-1", required = false) Integer year,
+                                  @RequestParam(value = "view", defaultValue = "full") String view) {
+        return filmService.getFilmsTop(count, genreId, year, View.valueOfLabel(view));
     }
 
     @DeleteMapping("/{filmId}")
+    @DbRoundtripBudget(2)
     @Operation(summary = "deletes film by id if exists")
     public void deleteFilmById(@PathVariable Integer filmId) {
         filmService.deleteFilmById(filmId);
     }
 
     @GetMapping("/director/{directorId}")
+    @DbRoundtripBudget(3)
     @Operation(summary = "returns film by director")
     public List<Film> getFilmsByDirector(@PathVariable int directorId, @RequestParam String sortBy) {
         return filmService.getFilmsByDirector(directorId, sortBy);
     }
 
     @GetMapping("/search")
+    @DbRoundtripBudget(2)
     @Operation(summary = "returns films by filter")
     public List<Film> searchFilms(@RequestParam String query,
                                   @RequestParam(defaultValue = "title") List<String> by) {
@@ -85,6 +132,7 @@ public class FilmController {
     }
 
     @GetMapping("/common")
+    @DbRoundtripBudget(4)
     public List<Film> getCommonFilms(@RequestParam Integer userId,
                                      @RequestParam Integer friendId) {
         return filmService.getCommonFilms(userId, friendId);
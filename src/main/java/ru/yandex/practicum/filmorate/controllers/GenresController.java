@@ -3,15 +3,16 @@ package ru.yandex.practicum.filmorate.controllers;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.annotations.DbRoundtripBudget;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.GenreService;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/genres")
 @Tag(name = "Operations with Genres")
@@ -24,14 +25,18 @@ public class GenresController {
     }
 
     @GetMapping("/{id}")
+    @DbRoundtripBudget(1)
     @Operation(summary = "returns genre by id if exists")
     public Genre findGenreById(@PathVariable int id) {
         return genreService.getById(id);
     }
 
     @GetMapping
+    @DbRoundtripBudget(0)
     @Operation(summary = "returns all genres")
-    public List<Genre> getAllGenres() {
-        return genreService.getAll();
+    public ResponseEntity<byte[]> getAllGenres() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(genreService.getAllAsJson());
     }
 }
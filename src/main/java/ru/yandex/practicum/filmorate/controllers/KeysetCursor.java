@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import org.springframework.http.ResponseEntity;
+import ru.yandex.practicum.filmorate.service.PageLimits;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Opaque cursor for keyset pagination. The token wraps the id of the last entity of a page,
+ * the next page starts right after it.
+ */
+final class KeysetCursor {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String PREFIX = "id:";
+
+    private KeysetCursor() {
+    }
+
+    static int decode(String token) {
+        if (token == null || token.isBlank()) {
+            return 0;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if (!value.startsWith(PREFIX)) {
+                throw new IllegalArgumentException("incorrect cursor");
+            }
+            return Integer.parseInt(value.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("incorrect cursor");
+        }
+    }
+
+    static String encode(int id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Wraps a page into a response. The next cursor is sent unless the page is empty
+     * or shorter than the page size, i.e. unless it is the last one. The page size is the limit
+     * resolved by {@link PageLimits#resolve}, not the requested one, which may exceed the maximum.
+     */
+    static <T> ResponseEntity<List<T>> toResponse(List<T> page, int pageSize, ToIntFunction<T> idExtractor) {
+        if (page.isEmpty() || page.size() < pageSize) {
+            return ResponseEntity.ok(page);
+        }
+        int lastId = idExtractor.applyAsInt(page.get(page.size() - 1));
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, encode(lastId))
+                .body(page);
+    }
+}
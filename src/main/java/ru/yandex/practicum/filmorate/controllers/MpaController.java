@@ -3,15 +3,16 @@ package ru.yandex.practicum.filmorate.controllers;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.annotations.DbRoundtripBudget;
 import ru.yandex.practicum.filmorate.model.MpaCategory;
 import ru.yandex.practicum.filmorate.service.MpaService;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/mpa")
 @Tag(name = "Operations with MpaRatings")
@@ -24,14 +25,18 @@ public class MpaController {
     }
 
     @GetMapping("/{id}")
+    @DbRoundtripBudget(1)
     @Operation(summary = "returns MpaRating by id if exists")
     public MpaCategory findCategoryById(@PathVariable int id) {
         return mpaService.getById(id);
     }
 
     @GetMapping
+    @DbRoundtripBudget(0)
     @Operation(summary = "returns all MpaRatings")
-    public List<MpaCategory> getAllCategories() {
-        return mpaService.getAll();
+    public ResponseEntity<byte[]> getAllCategories() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(mpaService.getAllAsJson());
     }
 }
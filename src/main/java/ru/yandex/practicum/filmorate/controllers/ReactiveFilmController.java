@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.enums.View;
+import ru.yandex.practicum.filmorate.service.ReactiveFilmService;
+
+import java.util.List;
+
+/**
+ * Streamed film reads of the {@code reactive} profile, served to requests accepting newline-delimited JSON.
+ * Films are written as they are read, the next ones read once the client has taken the previous ones,
+ * and no servlet thread waits for the database meanwhile. Requests accepting JSON are served by
+ * {@link FilmController} in any profile.
+ */
+@RestController
+@RequestMapping(value = "/films", produces = ReactiveFilmController.NDJSON)
+@Profile("reactive")
+@Tag(name = "Streamed reads of films")
+public class ReactiveFilmController {
+    static final String NDJSON = "application/x-ndjson";
+    private final ReactiveFilmService filmService;
+
+    @Autowired
+    public ReactiveFilmController(ReactiveFilmService filmService) {
+        this.filmService = filmService;
+    }
+
+    @GetMapping
+    @Operation(summary = "Streams all films ordered by id, likes are left out with view=summary")
+    public Flux<Film> streamFilms(@RequestParam(value = "view", defaultValue = "full") String view) {
+        return filmService.getAllFilms(View.valueOfLabel(view));
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Streams the film by id if exists")
+    public Flux<Film> streamFilmById(@PathVariable Integer id) {
+        return filmService.findFilmById(id).flux();
+    }
+
+    @GetMapping("/popular")
+    @Operation(summary = "Streams top-N films by rate, without likes if view=summary")
+    public Flux<Film> streamFilmsTop(@RequestParam(value = "count", defaultValue = "10") Integer count,
+                                     @RequestParam(value = "genreId", defaultValue = "-1") Integer genreId,
+                                     @RequestParam(value = "year", defaultValue = "-1") Integer year,
+                                     @RequestParam(value = "view", defaultValue = "full") String view) {
+        return filmService.getFilmsTop(count, genreId, year, View.valueOfLabel(view));
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Streams films by filter")
+    public Flux<Film> streamSearchFilms(@RequestParam String query,
+                                        @RequestParam(defaultValue = "title") List<String> by) {
+        return filmService.searchFilms(query, by);
+    }
+}
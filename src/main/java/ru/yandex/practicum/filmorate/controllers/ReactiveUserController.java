@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.service.ReactiveEventService;
+
+/**
+ * Streamed feed reads of the {@code reactive} profile, served to requests accepting newline-delimited JSON,
+ * see {@link ReactiveFilmController}. Long polls with 'waitSeconds' stay with {@link UserController}.
+ */
+@RestController
+@RequestMapping(value = "/users", produces = ReactiveFilmController.NDJSON)
+@Profile("reactive")
+@Tag(name = "Streamed reads of users")
+public class ReactiveUserController {
+    private final ReactiveEventService eventService;
+
+    @Autowired
+    public ReactiveUserController(ReactiveEventService eventService) {
+        this.eventService = eventService;
+    }
+
+    @GetMapping("/{id}/feed")
+    @Operation(summary = "Streams users events-feed, or a page of events newer than 'sinceEventId' " +
+            "if 'sinceEventId' or 'limit' is set")
+    public Flux<Event> streamFeedByUserId(@PathVariable int id,
+                                          @RequestParam(value = "sinceEventId", required = false)
+                                          Integer sinceEventId,
+                                          @RequestParam(value = "limit", required = false) Integer limit) {
+        return eventService.getFeedByUserId(id, sinceEventId, limit);
+    }
+}
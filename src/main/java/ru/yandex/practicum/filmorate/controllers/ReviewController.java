@@ -4,6 +4,7 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.annotations.DbRoundtripBudget;
 import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.service.ReviewService;
 
@@ -22,30 +23,35 @@ public class ReviewController {
     }
 
     @GetMapping("/{id}")
+    @DbRoundtripBudget(1)
     @Operation(summary = "returns review by id if exists")
     public Review getReviewById(@PathVariable Integer id) {
         return reviewService.getReviewById(id);
     }
 
     @PostMapping
+    @DbRoundtripBudget(3)
     @Operation(summary = "creates new review")
     public Review createReview(@Valid @RequestBody Review review) {
         return reviewService.createReview(review);
     }
 
     @PutMapping
+    @DbRoundtripBudget(5)
     @Operation(summary = "updates review if exists")
     public Review updateReview(@Valid @RequestBody Review review) {
         return reviewService.updateReview(review);
     }
 
     @DeleteMapping("/{id}")
+    @DbRoundtripBudget(2)
     @Operation(summary = "deletes review if exists")
     public void deleteReviewById(@PathVariable Integer id) {
         reviewService.deleteReviewById(id);
     }
 
     @GetMapping
+    @DbRoundtripBudget(2)
     @Operation(summary = "returns review by optional parameters:count or filmId or both")
     public List<Review> getReviewsByParameters(@RequestParam(value = "count",defaultValue = "10", required = false)
                                               Integer count,
@@ -54,24 +60,28 @@ public class ReviewController {
     }
 
     @PutMapping("/{id}/like/{userId}")
+    @DbRoundtripBudget(5)
     @Operation(summary = "adds like to review from user")
     public void addLike(@PathVariable Integer id, @PathVariable Integer userId) {
         reviewService.addLike(id, userId);
     }
 
     @DeleteMapping("/{id}/like/{userId}")
+    @DbRoundtripBudget(5)
     @Operation(summary = "removes like to review from user if exists")
     public void removeLike(@PathVariable Integer id, @PathVariable Integer userId) {
         reviewService.removeLike(id, userId);
     }
 
     @PutMapping("/{id}/dislike/{userId}")
+    @DbRoundtripBudget(5)
     @Operation(summary = "adds dislike to review from users")
     public void addDislike(@PathVariable Integer id, @PathVariable Integer userId) {
         reviewService.addDislike(id, userId);
     }
 
     @DeleteMapping("/{id}/dislike/{userId}")
+    @DbRoundtripBudget(5)
     @Operation(summary = "deletes dislike to review from user if exists")
     public void removeDislike(@PathVariable Integer id, @PathVariable Integer userId) {
         reviewService.removeDislike(id, userId);
@@ -3,15 +3,20 @@ package ru.yandex.practicum.filmorate.controllers;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.annotations.DbRoundtripBudget;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.enums.View;
 import ru.yandex.practicum.filmorate.service.EventService;
+import ru.yandex.practicum.filmorate.service.PageLimits;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import javax.validation.Valid;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/users")
@@ -27,66 +32,103 @@ public class UserController {
     }
 
     @GetMapping
-    @Operation(summary = "returns all users")
-    public List<User> getUsers() {
-        return userService.getAllUsers();
+    @DbRoundtripBudget(2)
+    @Operation(summary = "returns all users, or a page of users ordered by id if 'after' or 'limit' is set. " +
+            "Friends are left out with view=summary")
+    public ResponseEntity<List<User>> getUsers(@RequestParam(value = "after", required = false) String after,
+                                               @RequestParam(value = "limit", required = false) Integer limit,
+                                               @RequestParam(value = "view", defaultValue = "full") String view) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(userService.getAllUsers(View.valueOfLabel(view)));
+        }
+        int pageSize = PageLimits.resolve(limit);
+        List<User> page = userService.getUsersPage(KeysetCursor.decode(after), pageSize, View.valueOfLabel(view));
+        return KeysetCursor.toResponse(page, pageSize, User::getId);
     }
 
     @GetMapping("/{id}")
+    @DbRoundtripBudget(2)
     @Operation(summary = "returns user by id if exists")
     public User findById(@PathVariable Integer id) {
         return userService.findUserById(id);
     }
 
     @PostMapping
+    @DbRoundtripBudget(1)
     @Operation(summary = "creates new user")
     public User createUser(@Valid @RequestBody User user) {
         return userService.createUser(user);
     }
 
     @PutMapping
+    @DbRoundtripBudget(4)
     @Operation(summary = "updates user if exists")
     public User updateUser(@Valid @RequestBody User user) {
         return userService.updateUser(user);
     }
 
     @PutMapping("/{id}/friends/{friendId}")
+    @DbRoundtripBudget(4)
     @Operation(summary = "adds new friend to users friends-list")
     public void addFriend(@PathVariable Integer id, @PathVariable Integer friendId) {
         userService.addFriend(id, friendId);
     }
 
     @DeleteMapping("/{id}/friends/{friendId}")
+    @DbRoundtripBudget(4)
     @Operation(summary = "deletes friend from users friend-list if exists")
     public void deleteFriend(@PathVariable Integer id, @PathVariable Integer friendId) {
         userService.deleteFriend(id, friendId);
     }
 
     @GetMapping("/{id}/friends")
+    @DbRoundtripBudget(4)
     @Operation(summary = "returns users friends-list")
     public List<User> getFriendsSet(@PathVariable Integer id) {
         return userService.getFriendsSet(id);
     }
 
     @GetMapping("/{id}/friends/common/{friendsId}")
+    @DbRoundtripBudget(5)
     @Operation(summary = "returns mutual friends between another user")
     public List<User> getMutualFriendsSet(@PathVariable Integer id, @PathVariable Integer friendsId) {
         return userService.getMutualFriendsSet(id, friendsId);
     }
 
     @DeleteMapping("/{userId}")
+    @DbRoundtripBudget(2)
     @Operation(summary = "deletes user by id if exists")
     public void deleteUserById(@PathVariable Integer userId) {
         userService.deleteUserById(userId);
     }
 
     @GetMapping("/{id}/feed")
-    @Operation(summary = "returns users events-feed")
-    public List<Event> getFeedByUserId(@PathVariable int id){
-        return eventService.getFeedByUserId(id);
+    @DbRoundtripBudget(2)
+    @Operation(summary = "returns users events-feed, or a page of events newer than 'sinceEventId' " +
+            "if 'sinceEventId' or 'limit' is set")
+    public List<Event> getFeedByUserId(@PathVariable int id,
+                                       @RequestParam(value = "sinceEventId", required = false) Integer sinceEventId,
+                                       @RequestParam(value = "limit", required = false) Integer limit) {
+        if (sinceEventId == null && limit == null) {
+            return eventService.getFeedByUserId(id);
+        }
+        return eventService.getFeedByUserId(id, sinceEventId, limit);
+    }
+
+    @GetMapping(value = "/{id}/feed", params = "waitSeconds")
+    @DbRoundtripBudget(2)
+    @Operation(summary = "returns events newer than 'sinceEventId', waiting up to 'waitSeconds' for new ones " +
+            "if there are none yet")
+    public CompletableFuture<List<Event>> waitForFeed(@PathVariable int id,
+                                                      @RequestParam(value = "sinceEventId", required = false)
+                                                      Integer sinceEventId,
+                                                      @RequestParam(value = "limit", required = false) Integer limit,
+                                                      @RequestParam("waitSeconds") int waitSeconds) {
+        return eventService.waitForFeed(id, sinceEventId, limit, waitSeconds);
     }
 
     @GetMapping("{id}/recommendations")
+    @DbRoundtripBudget(2)
     public List<Film> getRecommendations(@PathVariable int id,
                                          @RequestParam(required = false, defaultValue = "10") Integer limitFilms) {
         return userService.getRecommendations(id, limitFilms);
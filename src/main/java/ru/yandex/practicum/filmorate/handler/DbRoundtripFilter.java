@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate.handler;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.yandex.practicum.filmorate.annotations.DbRoundtripBudget;
+import ru.yandex.practicum.filmorate.storage.JdbcRoundTrips;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Counts the statements every request sends to the database. The count is returned in the
+ * {@code X-Db-Roundtrips} header, set when the response body is started, and recorded in the
+ * {@code filmorate.http.roundtrips} metric tagged with the HTTP method and the uri pattern.
+ * <p>
+ * A request exceeding the {@link DbRoundtripBudget} of its endpoint is logged, and fails with
+ * IllegalStateException when {@code filmorate.db-roundtrips.enforce-budget} is set, as it is in tests.
+ * Only statements of the request thread are counted, events written by the batch writer are not.
+ */
+@Component
+@Slf4j
+public class DbRoundtripFilter extends OncePerRequestFilter {
+    public static final String HEADER = "X-Db-Roundtrips";
+    private static final String METRIC = "filmorate.http.roundtrips";
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enforceBudget;
+
+    public DbRoundtripFilter(MeterRegistry meterRegistry,
+                             @Value("${filmorate.db-roundtrips.enforce-budget:false}") boolean enforceBudget) {
+        this.meterRegistry = meterRegistry;
+        this.enforceBudget = enforceBudget;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = JdbcRoundTrips.get();
+        long warmUpsStart = JdbcRoundTrips.getWarmUps();
+        HeaderOnCommit wrapped = new HeaderOnCommit(response, start);
+        chain.doFilter(request, wrapped);
+        //Responses without a body are committed by the container after the filters return. A streamed
+        //response is written by another thread once the request is async, so only its body sets the header
+        if (!request.isAsyncStarted()) {
+            wrapped.setHeader();
+        }
+
+        long roundTrips = JdbcRoundTrips.get() - start;
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        DistributionSummary.builder(METRIC)
+                .tags("method", request.getMethod(), "uri", uri)
+                .register(meterRegistry)
+                .record(roundTrips);
+
+        DbRoundtripBudget budget = budget(request);
+        long counted = roundTrips - (JdbcRoundTrips.getWarmUps() - warmUpsStart);
+        if (budget != null && counted > budget.value()) {
+            String message = String.format("%s %s sent %d statements to the database, its budget is %d",
+                    request.getMethod(), uri, counted, budget.value());
+            if (enforceBudget) {
+                throw new IllegalStateException(message);
+            }
+            log.warn(message);
+        }
+    }
+
+    private static DbRoundtripBudget budget(HttpServletRequest request) {
+        Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        return handler instanceof HandlerMethod
+                ? ((HandlerMethod) handler).getMethodAnnotation(DbRoundtripBudget.class)
+                : null;
+    }
+
+    /**
+     * Sets the header with the statements counted so far once the body is started, the last moment
+     * headers can still be changed.
+     */
+    private static class HeaderOnCommit extends HttpServletResponseWrapper {
+        private final long start;
+        private boolean headerSet;
+
+        HeaderOnCommit(HttpServletResponse response, long start) {
+            super(response);
+            this.start = start;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            setHeader();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            setHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            setHeader();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int status, String message) throws IOException {
+            setHeader();
+            super.sendError(status, message);
+        }
+
+        @Override
+        public void sendError(int status) throws IOException {
+            setHeader();
+            super.sendError(status);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            setHeader();
+            super.sendRedirect(location);
+        }
+
+        void setHeader() {
+            if (!headerSet && !isCommitted()) {
+                headerSet = true;
+                setHeader(HEADER, Long.toString(JdbcRoundTrips.get() - start));
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package ru.yandex.practicum.filmorate.handler;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -21,14 +22,18 @@ import java.util.Map;
 @Slf4j
 public class ErrorHandler extends ResponseEntityExceptionHandler {
 
-    @ResponseStatus(HttpStatus.NOT_FOUND)
+    /**
+     * The content type is set, not negotiated, since requests to the streamed endpoints accept NDJSON only.
+     */
     @ExceptionHandler(NotFoundException.class)
-    protected Map<String, String> handleResourceNotFoundException(
+    protected ResponseEntity<Map<String, String>> handleResourceNotFoundException(
             NotFoundException ex) {
         log.error(ex.getMessage());
         Map<String, String> errors = new HashMap<>();
         errors.put(ex.getParameter(), ex.getMessage());
-        return errors;
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(errors);
     }
 
     @ResponseStatus(HttpStatus.BAD_REQUEST)
@@ -1,9 +1,12 @@
 package ru.yandex.practicum.filmorate.mappers;
 
+import io.r2dbc.spi.Row;
 import ru.yandex.practicum.filmorate.model.Event;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 
 public class EventMapper {
     public static Event mapToFeed(ResultSet rs, int rowNumber) throws SQLException {
@@ -16,4 +19,15 @@ public class EventMapper {
                 .operation(Event.Operation.valueOf(rs.getString("operation")))
                 .build();
     }
+
+    public static Event mapRowToFeed(Row row) {
+        return Event.builder()
+                .eventId(FilmMapper.intValue(row, "event_id"))
+                .userId(FilmMapper.intValue(row, "user_id"))
+                .entityId(FilmMapper.intValue(row, "entity_id"))
+                .eventTime(Timestamp.valueOf(row.get("event_time", LocalDateTime.class)))
+                .eventType(Event.EventType.valueOf(row.get("event_type", String.class)))
+                .operation(Event.Operation.valueOf(row.get("operation", String.class)))
+                .build();
+    }
 }
@@ -1,10 +1,14 @@
 package ru.yandex.practicum.filmorate.mappers;
 
+import io.r2dbc.spi.Row;
+import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.MpaCategory;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDate;
 
 public class FilmMapper {
     public static Film mapToFilm(ResultSet rs, int rowNumber) throws SQLException {
@@ -17,8 +21,47 @@ public class FilmMapper {
                 .setRate(rs.getInt("rate"))
                 .setMpa(new MpaCategory());
         film.getMpa().setId(rs.getInt("mpa_rate_id"));
-        film.getMpa().setName(rs.getString("mpa_name"));
 
         return film;
     }
+
+    public static Film mapRowToFilm(Row row) {
+        Film film = new Film();
+        film.setId(intValue(row, "id"))
+                .setName(row.get("name", String.class))
+                .setDescription(row.get("description", String.class))
+                .setReleaseDate(row.get("release_date", LocalDate.class))
+                .setDuration(intValue(row, "duration"))
+                .setRate(intValue(row, "rate"))
+                .setMpa(new MpaCategory());
+        film.getMpa().setId(intValue(row, "mpa_rate_id"));
+
+        return film;
+    }
+
+    /**
+     * Adds a row of the films attributes query, a genre, director or like told apart by its kind.
+     */
+    public static void addAttribute(Film film, String kind, int id, String name) {
+        switch (kind) {
+            case "G":
+                Genre genre = new Genre();
+                genre.setId(id);
+                film.getGenres().add(genre);
+                break;
+            case "D":
+                Director director = new Director();
+                director.setId(id);
+                director.setName(name);
+                film.getDirectors().add(director);
+                break;
+            default:
+                film.addLike(id);
+        }
+    }
+
+    static int intValue(Row row, String name) {
+        Integer value = row.get(name, Integer.class);
+        return value == null ? 0 : value;
+    }
 }
@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Builder;
 import lombok.Getter;
@@ -20,6 +21,8 @@ public class Event {
     @JsonFormat(shape = JsonFormat.Shape.NUMBER)
     @JsonProperty("timestamp")
     private final Date eventTime;
+    @JsonIgnore
+    private final String entityTableName;
 
     public enum EventType{
         LIKE, REVIEW, FRIEND
@@ -1,5 +1,7 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.Data;
 import lombok.NonNull;
 import lombok.experimental.Accessors;
@@ -30,7 +32,9 @@ public class Film {
     @NonNull
     private MpaCategory mpa = new MpaCategory();
     private Set<Genre> genres = new TreeSet<>();
-    private Set<Integer> likes = new HashSet<>();
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonDeserialize(as = SortedIntSet.class)
+    private Set<Integer> likes = new SortedIntSet();
     private Set<Director> directors = new HashSet<>();
 
     public void addLike(Integer id) {
@@ -44,4 +48,8 @@ public class Film {
     public void setGenres(Set<Genre> genres) {
         this.genres = new TreeSet<>(genres);
     }
+
+    public void setLikes(Set<Integer> likes) {
+        this.likes = likes == null || likes instanceof SortedIntSet ? likes : new SortedIntSet(likes);
+    }
 }
@@ -0,0 +1,256 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Set of ints kept as a sorted primitive array, used for like and friend ids instead of a HashSet of boxed
+ * Integers. Ids arrive from the database mostly in ascending order, which makes adding them an append.
+ * An id out of order is inserted by shifting the greater ones, which a bulk copy does fast while the array
+ * fits the cache. In larger sets such ids go to a small sorted buffer instead, merged into the array once
+ * it holds the square root of the size, so n adds in random order cost O(n * sqrt(n)) rather than O(n^2).
+ * Serialized to JSON as a plain array of numbers. Not thread-safe, like the rest of the model.
+ */
+@JsonSerialize(using = SortedIntSet.Serializer.class)
+@JsonDeserialize(using = SortedIntSet.Deserializer.class)
+public class SortedIntSet extends AbstractSet<Integer> {
+    private static final int[] EMPTY = new int[0];
+    static final int DIRECT_INSERT_LIMIT = 8192;
+    private static final int MIN_PENDING = 16;
+
+    private int[] values = EMPTY;
+    private int size;
+    //Sorted, and disjoint from the values
+    private int[] pending = EMPTY;
+    private int pendingSize;
+
+    public SortedIntSet() {
+    }
+
+    public SortedIntSet(Collection<Integer> values) {
+        addAll(values);
+    }
+
+    private SortedIntSet(int[] values) {
+        Arrays.sort(values);
+        int distinct = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i == 0 || values[i] != values[i - 1]) {
+                values[distinct++] = values[i];
+            }
+        }
+        this.values = values;
+        this.size = distinct;
+    }
+
+    public static SortedIntSet of(int... values) {
+        return new SortedIntSet(values.clone());
+    }
+
+    @Override
+    public int size() {
+        return size + pendingSize;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer && contains((int) (Integer) o);
+    }
+
+    public boolean contains(int value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0
+                || Arrays.binarySearch(pending, 0, pendingSize, value) >= 0;
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        return add((int) value);
+    }
+
+    public boolean add(int value) {
+        if (pendingSize == 0 && (size == 0 || values[size - 1] < value)) {
+            ensureCapacity();
+            values[size++] = value;
+            return true;
+        }
+        int position = Arrays.binarySearch(values, 0, size, value);
+        if (position >= 0) {
+            return false;
+        }
+        if (pendingSize == 0 && size < DIRECT_INSERT_LIMIT) {
+            position = -position - 1;
+            ensureCapacity();
+            System.arraycopy(values, position, values, position + 1, size - position);
+            values[position] = value;
+            size++;
+            return true;
+        }
+        position = Arrays.binarySearch(pending, 0, pendingSize, value);
+        if (position >= 0) {
+            return false;
+        }
+        position = -position - 1;
+        if (pendingSize == pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(MIN_PENDING, pendingSize * 2));
+        }
+        System.arraycopy(pending, position, pending, position + 1, pendingSize - position);
+        pending[position] = value;
+        pendingSize++;
+        if (pendingSize >= Math.max(MIN_PENDING, (int) Math.sqrt(size))) {
+            mergePending();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Integer> values) {
+        if (values.size() < size) {
+            return super.addAll(values);
+        }
+        mergePending();
+        int[] merged = Arrays.copyOf(this.values, size + values.size());
+        int i = size;
+        for (Integer value : values) {
+            merged[i++] = value;
+        }
+        SortedIntSet union = new SortedIntSet(merged);
+        boolean changed = union.size != size;
+        this.values = union.values;
+        this.size = union.size;
+        return changed;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Integer && remove((int) (Integer) o);
+    }
+
+    public boolean remove(int value) {
+        int position = Arrays.binarySearch(values, 0, size, value);
+        if (position >= 0) {
+            removeAt(position);
+            return true;
+        }
+        position = Arrays.binarySearch(pending, 0, pendingSize, value);
+        if (position >= 0) {
+            System.arraycopy(pending, position + 1, pending, position, pendingSize - position - 1);
+            pendingSize--;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void clear() {
+        values = EMPTY;
+        size = 0;
+        pending = EMPTY;
+        pendingSize = 0;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        mergePending();
+        return new Iterator<>() {
+            private int next;
+            private int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Integer next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                last = next++;
+                return values[last];
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                removeAt(last);
+                next = last;
+                last = -1;
+            }
+        };
+    }
+
+    public int[] toIntArray() {
+        mergePending();
+        return Arrays.copyOf(values, size);
+    }
+
+    private void removeAt(int position) {
+        System.arraycopy(values, position + 1, values, position, size - position - 1);
+        size--;
+    }
+
+    private void ensureCapacity() {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(4, size * 2));
+        }
+    }
+
+    /**
+     * Merges the buffered ids into the sorted array from the largest one down: each id is put in place
+     * after the run of greater values is moved up by the number of ids still to go before it, so every value
+     * is moved once, by a bulk copy.
+     */
+    private void mergePending() {
+        if (pendingSize == 0) {
+            return;
+        }
+        int total = size + pendingSize;
+        if (total > values.length) {
+            values = Arrays.copyOf(values, Math.max(4, Math.max(total, size * 2)));
+        }
+        int end = size;
+        for (int j = pendingSize - 1; j >= 0; j--) {
+            int position = -Arrays.binarySearch(values, 0, end, pending[j]) - 1;
+            System.arraycopy(values, position, values, position + j + 1, end - position);
+            values[position + j] = pending[j];
+            end = position;
+        }
+        size = total;
+        pendingSize = 0;
+    }
+
+    static class Serializer extends StdSerializer<SortedIntSet> {
+        Serializer() {
+            super(SortedIntSet.class);
+        }
+
+        @Override
+        public void serialize(SortedIntSet set, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            set.mergePending();
+            generator.writeArray(set.values, 0, set.size);
+        }
+    }
+
+    static class Deserializer extends StdDeserializer<SortedIntSet> {
+        Deserializer() {
+            super(SortedIntSet.class);
+        }
+
+        @Override
+        public SortedIntSet deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            return new SortedIntSet(parser.readValueAs(int[].class));
+        }
+    }
+}
@@ -1,12 +1,13 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.Data;
 import lombok.experimental.Accessors;
 import ru.yandex.practicum.filmorate.annotations.CorrectLogin;
 
 import javax.validation.constraints.*;
 import java.time.LocalDate;
-import java.util.HashSet;
 import java.util.Set;
 
 @Data
@@ -23,7 +24,9 @@ public class User {
     private String name;
     @PastOrPresent
     private LocalDate birthday;
-    private Set<Integer> friends = new HashSet<>();
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonDeserialize(as = SortedIntSet.class)
+    private Set<Integer> friends = new SortedIntSet();
 
     public void addFriend(Integer id) {
         friends.add(id);
@@ -32,4 +35,8 @@ public class User {
     public void deleteFriend(Integer id) {
         friends.remove(id);
     }
+
+    public void setFriends(Set<Integer> friends) {
+        this.friends = friends == null || friends instanceof SortedIntSet ? friends : new SortedIntSet(friends);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.model.enums;
+
+import java.util.stream.Stream;
+
+/**
+ * Projection of films and users returned by list endpoints. The summary view leaves out film likes
+ * and user friends, so their tables are not queried at all.
+ */
+public enum View {
+
+    FULL("full"),
+    SUMMARY("summary");
+
+    public final String label;
+
+    View(String label) {
+        this.label = label;
+    }
+
+    public static View valueOfLabel(String value) {
+        return Stream.of(View.values())
+                .filter(v -> v.label.equals(value))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("incorrect view type"));
+    }
+}
@@ -2,32 +2,90 @@ package ru.yandex.practicum.filmorate.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.storage.event.EventBatchWriter;
 import ru.yandex.practicum.filmorate.storage.event.EventStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import javax.annotation.PreDestroy;
 import java.sql.Date;
 import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class EventService {
+    static final int MAX_WAIT_SECONDS = 30;
+
     private final EventStorage eventStorage;
     private final UserStorage userStorage;
+    private final EventBatchWriter eventWriter;
+    private final ExecutorService feedReaders;
 
     @Autowired
-    public EventService(@Qualifier("userDbStorage") UserStorage userStorage, EventStorage eventStorage) {
+    public EventService(@Qualifier("userDbStorage") UserStorage userStorage, EventStorage eventStorage,
+                        EventBatchWriter eventWriter,
+                        @Value("${filmorate.events.feed.pool-size:4}") int feedPoolSize) {
         this.userStorage = userStorage;
         this.eventStorage = eventStorage;
+        this.eventWriter = eventWriter;
+        this.feedReaders = Executors.newFixedThreadPool(feedPoolSize, runnable -> {
+            Thread thread = new Thread(runnable, "feed-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     public List<Event> getFeedByUserId(int id) {
-        //Try to find user by id to check if user exists. If not - NotFoundException is thrown
-        userStorage.findById(id);
+        //NotFoundException is thrown if the user does not exist
+        userStorage.checkExists(id);
+        eventWriter.awaitPending(id);
         return eventStorage.getFeedByUserId(id);
     }
 
+    /**
+     * Returns a page of the feed with events newer than sinceEventId. Both parameters are optional,
+     * the feed is read from its start by default.
+     */
+    public List<Event> getFeedByUserId(int id, Integer sinceEventId, Integer limit) {
+        userStorage.checkExists(id);
+        eventWriter.awaitPending(id);
+        return eventStorage.getFeedByUserId(id, sinceEventId == null ? 0 : sinceEventId, PageLimits.resolve(limit));
+    }
+
+    /**
+     * Long-poll version of {@link #getFeedByUserId(int, Integer, Integer)}: when there are no events newer
+     * than sinceEventId yet, the result is completed as soon as the next event of the user is written,
+     * or with an empty list once waitSeconds pass. The feed is then read on a pool of its own,
+     * since the read blocks on the database.
+     */
+    public CompletableFuture<List<Event>> waitForFeed(int id, Integer sinceEventId, Integer limit, int waitSeconds) {
+        if (waitSeconds < 0) {
+            throw new IllegalArgumentException("field 'waitSeconds' must not be negative");
+        }
+        //Subscribe before reading, so an event written between the read and the subscription is not missed
+        CompletableFuture<Boolean> nextWrite = eventWriter.awaitNextWrite(id, Math.min(waitSeconds, MAX_WAIT_SECONDS),
+                TimeUnit.SECONDS);
+        List<Event> events;
+        try {
+            events = getFeedByUserId(id, sinceEventId, limit);
+        } catch (RuntimeException e) {
+            nextWrite.cancel(false);
+            throw e;
+        }
+        if (!events.isEmpty() || waitSeconds == 0) {
+            nextWrite.cancel(false);
+            return CompletableFuture.completedFuture(events);
+        }
+        return nextWrite.thenApplyAsync(written -> written ? getFeedByUserId(id, sinceEventId, limit) : List.of(),
+                feedReaders);
+    }
+
     public void addNewEvent(int userId, int entityId, Event.EventType eventType,
                             Event.Operation operation, String tableName) {
         Event newEvent = Event.builder()
@@ -36,7 +94,13 @@ public class EventService {
                 .eventType(eventType)
                 .operation(operation)
                 .eventTime(Date.from(Instant.now()))
+                .entityTableName(tableName)
                 .build();
-        eventStorage.addNewEvent(newEvent, tableName);
+        eventWriter.write(newEvent);
+    }
+
+    @PreDestroy
+    public void stop() {
+        feedReaders.shutdownNow();
     }
 }
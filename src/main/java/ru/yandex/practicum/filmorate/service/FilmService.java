@@ -3,15 +3,23 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.enums.SearchParam;
+import ru.yandex.practicum.filmorate.model.enums.View;
 import ru.yandex.practicum.filmorate.storage.director.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static ru.yandex.practicum.filmorate.model.enums.SearchParam.SEARCH_PARAMS;
@@ -25,38 +33,57 @@ public class FilmService {
     private final UserStorage userStorage;
     private final DirectorStorage directorStorage;
     private final EventService eventService;
+    private final FilmPopularityIndex popularityIndex;
+    private final boolean popularityIndexEnabled;
 
     @Autowired
     public FilmService(@Qualifier("filmDbStorage") FilmStorage filmStorage,
                        @Qualifier("userDbStorage") UserStorage userStorage,
                        DirectorStorage directorStorage,
-                       EventService eventService) {
+                       EventService eventService,
+                       FilmPopularityIndex popularityIndex,
+                       @Value("${filmorate.popularity-index.enabled:true}") boolean popularityIndexEnabled) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
         this.directorStorage = directorStorage;
         this.eventService = eventService;
+        this.popularityIndex = popularityIndex;
+        this.popularityIndexEnabled = popularityIndexEnabled;
     }
 
+    @Transactional
     public void addLike(Integer filmId, Integer userId) {
-        userStorage.findById(userId);
+        userStorage.checkExists(userId);
         filmStorage.addLike(filmId, userId);
         eventService.addNewEvent(userId, filmId, Event.EventType.LIKE, Event.Operation.ADD, TABLE_NAME);
         log.info("like for film with id={} added", filmId);
 
     }
 
+    @Transactional
     public void deleteLike(Integer filmId, Integer userId) {
-        userStorage.findById(userId);
+        userStorage.checkExists(userId);
         filmStorage.deleteLike(filmId, userId);
         eventService.addNewEvent(userId, filmId, Event.EventType.LIKE, Event.Operation.REMOVE, TABLE_NAME);
         log.info("like for film with id={} deleted", filmId);
     }
 
-    public List<Film> getFilmsTop(Integer count, Integer genreId, Integer year) {
+    public List<Film> getFilmsTop(Integer count, Integer genreId, Integer year, View view) {
         if (count < 0) {
             throw new IllegalArgumentException("field 'count' must be positive");
         }
-        return filmStorage.getFilmsTop(count, genreId, year);
+        if (!popularityIndexEnabled) {
+            return filmStorage.getFilmsTop(count, genreId, year, view);
+        }
+
+        List<Integer> ids = popularityIndex.getTop(count, genreId, year);
+        Map<Integer, Film> films = filmStorage.getFilmsByIdList(ids, view).stream()
+                .collect(Collectors.toMap(Film::getId, Function.identity()));
+        //A film deleted after the index was read is left out
+        return ids.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
     public Film createFilm(Film film) {
@@ -75,8 +102,16 @@ public class FilmService {
         return filmStorage.findById(id);
     }
 
-    public List<Film> getAllFilms() {
-        return filmStorage.getAll();
+    public List<Film> getAllFilms(View view) {
+        return filmStorage.getAll(view);
+    }
+
+    public void exportFilms(Consumer<Film> consumer) {
+        filmStorage.streamAll(consumer);
+    }
+
+    public List<Film> getFilmsPage(Integer afterId, Integer limit, View view) {
+        return filmStorage.getPage(afterId, PageLimits.resolve(limit), view);
     }
 
     public List<Film> getFilmsByDirector(int directorId, String sortBy) {
@@ -102,8 +137,8 @@ public class FilmService {
     }
 
     public List<Film> getCommonFilms(Integer userId, Integer friendsId) {
-        userStorage.findById(userId);
-        userStorage.findById(friendsId);
+        userStorage.checkExists(userId);
+        userStorage.checkExists(friendsId);
 
         return filmStorage.getCommonFilms(userId, friendsId);
     }
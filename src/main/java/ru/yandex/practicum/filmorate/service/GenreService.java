@@ -4,18 +4,18 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.storage.AbstractDictionary;
+import ru.yandex.practicum.filmorate.storage.DictionaryCache;
 
 import java.util.List;
 
 @Service
 @Slf4j
 public class GenreService {
-    private final AbstractDictionary<Genre> genreStorage;
+    private final DictionaryCache<Genre> genreCache;
 
     @Autowired
-    public GenreService(AbstractDictionary<Genre> genreStorage) {
-        this.genreStorage = genreStorage;
+    public GenreService(DictionaryCache<Genre> genreCache) {
+        this.genreCache = genreCache;
     }
 
     public Genre getById(int id) {
@@ -23,11 +23,15 @@ public class GenreService {
             throw new IllegalArgumentException("id cannot be negative");
         }
         log.info("find genre by id {}", id);
-        return genreStorage.getById(id);
+        return genreCache.getById(id);
     }
 
     public List<Genre> getAll() {
         log.info("find all genres");
-        return genreStorage.getAll();
+        return genreCache.getAll();
+    }
+
+    public byte[] getAllAsJson() {
+        return genreCache.getAllAsJson();
     }
 }
@@ -4,18 +4,18 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.model.MpaCategory;
-import ru.yandex.practicum.filmorate.storage.AbstractDictionary;
+import ru.yandex.practicum.filmorate.storage.DictionaryCache;
 
 import java.util.List;
 
 @Service
 @Slf4j
 public class MpaService {
-    private final AbstractDictionary<MpaCategory> mpaStorage;
+    private final DictionaryCache<MpaCategory> mpaCache;
 
     @Autowired
-    public MpaService(AbstractDictionary<MpaCategory> mpaStorage) {
-        this.mpaStorage = mpaStorage;
+    public MpaService(DictionaryCache<MpaCategory> mpaCache) {
+        this.mpaCache = mpaCache;
     }
 
     public MpaCategory getById(int id) {
@@ -23,11 +23,15 @@ public class MpaService {
             throw new IllegalArgumentException("id cannot be negative");
         }
         log.info("find mpa category by id {}", id);
-        return mpaStorage.getById(id);
+        return mpaCache.getById(id);
     }
 
     public List<MpaCategory> getAll() {
         log.info("find all mpa categories");
-        return mpaStorage.getAll();
+        return mpaCache.getAll();
+    }
+
+    public byte[] getAllAsJson() {
+        return mpaCache.getAllAsJson();
     }
 }
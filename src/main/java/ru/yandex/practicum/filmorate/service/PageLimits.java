@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.service;
+
+/**
+ * Page size bounds of paged endpoints. A missing limit falls back to the default page size,
+ * a larger one is capped at the maximum.
+ */
+public final class PageLimits {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private PageLimits() {
+    }
+
+    public static int resolve(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("field 'limit' must be positive");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+}
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.storage.event.EventBatchWriter;
+import ru.yandex.practicum.filmorate.storage.event.EventR2dbcStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+/**
+ * Feed reads of {@link EventService} as streams over {@link EventR2dbcStorage}, for the {@code reactive} profile.
+ * The feed is read once the pending events of the user are written, without blocking on them. The user is
+ * only looked up for an empty feed, a user with events exists, and the lookup, which may query the database
+ * over JDBC, runs on the bounded elastic scheduler.
+ */
+@Service
+@Profile("reactive")
+@Slf4j
+public class ReactiveEventService {
+    private final EventR2dbcStorage eventStorage;
+    private final UserStorage userStorage;
+    private final EventBatchWriter eventWriter;
+
+    @Autowired
+    public ReactiveEventService(EventR2dbcStorage eventStorage, @Qualifier("userDbStorage") UserStorage userStorage,
+                                EventBatchWriter eventWriter) {
+        this.eventStorage = eventStorage;
+        this.userStorage = userStorage;
+        this.eventWriter = eventWriter;
+    }
+
+    /**
+     * Streams the whole feed, or a page of events newer than sinceEventId if either parameter is set.
+     */
+    public Flux<Event> getFeedByUserId(int id, Integer sinceEventId, Integer limit) {
+        Flux<Event> feed = sinceEventId == null && limit == null
+                ? eventStorage.getFeedByUserId(id)
+                : eventStorage.getFeedByUserId(id, sinceEventId == null ? 0 : sinceEventId,
+                PageLimits.resolve(limit));
+
+        return Mono.fromFuture(eventWriter.getPending(id))
+                .onErrorResume(e -> {
+                    log.warn("feed of user with id {} may miss events that failed to write", id);
+                    return Mono.empty();
+                })
+                .thenMany(feed)
+                .switchIfEmpty(Mono.fromCallable(() -> userStorage.existsById(id))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .flatMapMany(exists -> exists
+                                ? Flux.empty()
+                                : Flux.error(new NotFoundException("id",
+                                String.format("user with id %d not found", id)))));
+    }
+}
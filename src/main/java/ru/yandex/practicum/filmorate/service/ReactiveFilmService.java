@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.enums.SearchParam;
+import ru.yandex.practicum.filmorate.model.enums.View;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmR2dbcStorage;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import static ru.yandex.practicum.filmorate.model.enums.SearchParam.SEARCH_PARAMS;
+
+/**
+ * Film reads of {@link FilmService} as streams over {@link FilmR2dbcStorage}, for the {@code reactive} profile.
+ * Arguments are validated before the stream is returned, so invalid requests fail as they do on the blocking path.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveFilmService {
+    private final FilmR2dbcStorage filmStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final boolean popularityIndexEnabled;
+
+    @Autowired
+    public ReactiveFilmService(FilmR2dbcStorage filmStorage,
+                               FilmPopularityIndex popularityIndex,
+                               @Value("${filmorate.popularity-index.enabled:true}") boolean popularityIndexEnabled) {
+        this.filmStorage = filmStorage;
+        this.popularityIndex = popularityIndex;
+        this.popularityIndexEnabled = popularityIndexEnabled;
+    }
+
+    public Flux<Film> getAllFilms(View view) {
+        return filmStorage.getAll(view);
+    }
+
+    public Mono<Film> findFilmById(Integer id) {
+        return filmStorage.findById(id);
+    }
+
+    public Flux<Film> getFilmsTop(Integer count, Integer genreId, Integer year, View view) {
+        if (count < 0) {
+            throw new IllegalArgumentException("field 'count' must be positive");
+        }
+        if (!popularityIndexEnabled) {
+            return filmStorage.getFilmsTop(count, genreId, year, view);
+        }
+
+        //The index may wait for a load that reads the database, so it is read off the event loop
+        return Mono.fromCallable(() -> popularityIndex.getTop(count, genreId, year))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(ids -> filmStorage.getFilmsByIdList(ids, view)
+                        .collectMap(Film::getId)
+                        .flatMapIterable(films -> ids.stream()
+                                .map(films::get)
+                                .filter(Objects::nonNull)
+                                .collect(Collectors.toList())));
+    }
+
+    public Flux<Film> searchFilms(String filter, List<String> by) {
+        if (filter.isBlank()) {
+            return filmStorage.getAll(View.FULL);
+        }
+        if (!SEARCH_PARAMS.containsAll(by)) {
+            throw new IllegalArgumentException("incorrect filter type");
+        }
+        List<SearchParam> params = by.stream()
+                .map(SearchParam::valueOfLabel)
+                .collect(Collectors.toList());
+        return filmStorage.searchFilm(filter, params);
+    }
+}
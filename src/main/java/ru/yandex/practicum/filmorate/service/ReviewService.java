@@ -37,8 +37,8 @@ public class ReviewService {
     }
 
     public Review createReview(Review review) {
-        userStorage.findById(review.getUserId());
-        filmStorage.findById(review.getFilmId());
+        userStorage.checkExists(review.getUserId());
+        filmStorage.checkExists(review.getFilmId());
         review = reviewStorage.create(review);
         eventService.addNewEvent(review.getUserId(), review.getReviewId(),
                 Event.EventType.REVIEW, Event.Operation.ADD, TABLE_NAME);
@@ -46,8 +46,8 @@ public class ReviewService {
     }
 
     public Review updateReview(Review review) {
-        userStorage.findById(review.getUserId());
-        filmStorage.findById(review.getFilmId());
+        userStorage.checkExists(review.getUserId());
+        filmStorage.checkExists(review.getFilmId());
         review = reviewStorage.update(review);
         eventService.addNewEvent(review.getUserId(), review.getReviewId(),
                 Event.EventType.REVIEW, Event.Operation.UPDATE, TABLE_NAME);
@@ -63,32 +63,32 @@ public class ReviewService {
 
     public List<Review> getReviewsByParameters(Integer filmId, int count) {
         if (filmId != null) {
-            filmStorage.findById(filmId);
+            filmStorage.checkExists(filmId);
         }
 
         return reviewStorage.getReviewsByParameters(filmId, count);
     }
 
     public void addLike(Integer reviewId, Integer userId) {
-        userStorage.findById(userId);
+        userStorage.checkExists(userId);
 
         reviewStorage.addLike(reviewId, userId);
     }
 
     public void removeLike(Integer reviewId, Integer userId) {
-        userStorage.findById(userId);
+        userStorage.checkExists(userId);
 
         reviewStorage.removeLike(reviewId, userId);
     }
 
     public void addDislike(Integer reviewId, Integer userId) {
-        userStorage.findById(userId);
+        userStorage.checkExists(userId);
 
         reviewStorage.addDislike(reviewId, userId);
     }
 
     public void removeDislike(Integer reviewId, Integer userId) {
-        userStorage.findById(userId);
+        userStorage.checkExists(userId);
 
         reviewStorage.removeDislike(reviewId, userId);
     }
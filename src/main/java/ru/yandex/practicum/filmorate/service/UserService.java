@@ -3,15 +3,23 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.enums.View;
+import ru.yandex.practicum.filmorate.storage.film.FilmRecommendationEngine;
+import ru.yandex.practicum.filmorate.storage.film.FilmRecommendationSnapshots;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -20,14 +28,20 @@ public class UserService {
     private final EventService eventService;
 
     private final FilmStorage filmStorage;
+    private final FilmRecommendationSnapshots recommendationSnapshots;
+    private final boolean recommendationEngineEnabled;
 
     private static final String TABLE_NAME = "users";
 
     @Autowired
-    public UserService(@Qualifier("userDbStorage") UserStorage userStorage, EventService eventService, FilmStorage filmStorage) {
+    public UserService(@Qualifier("userDbStorage") UserStorage userStorage, EventService eventService, FilmStorage filmStorage,
+                       FilmRecommendationSnapshots recommendationSnapshots,
+                       @Value("${filmorate.recommendations.engine.enabled:true}") boolean recommendationEngineEnabled) {
         this.userStorage = userStorage;
         this.eventService = eventService;
         this.filmStorage = filmStorage;
+        this.recommendationSnapshots = recommendationSnapshots;
+        this.recommendationEngineEnabled = recommendationEngineEnabled;
     }
 
     public void addFriend(Integer id, Integer friendId) {
@@ -48,8 +62,12 @@ public class UserService {
         return userStorage.getMutualFriendsSet(id, friendId);
     }
 
-    public List<User> getAllUsers() {
-        return userStorage.getAll();
+    public List<User> getAllUsers(View view) {
+        return userStorage.getAll(view);
+    }
+
+    public List<User> getUsersPage(Integer afterId, Integer limit, View view) {
+        return userStorage.getPage(afterId, PageLimits.resolve(limit), view);
     }
 
     public User createUser(User user) {
@@ -69,6 +87,9 @@ public class UserService {
     }
 
     public List<Film> getRecommendations(Integer idRecommendedUser, Integer limitFilms) {
+        if (recommendationEngineEnabled) {
+            return getRecommendationsFromEngine(idRecommendedUser, limitFilms);
+        }
         List<Integer> usersWithSimilarInterests = getIdUsersWithSimilarInterests(idRecommendedUser);
         if (usersWithSimilarInterests.isEmpty()) return new ArrayList<>();
         List<Integer> idRecommendationsFilms = getIdsFilmsRecommendations(usersWithSimilarInterests,
@@ -78,6 +99,21 @@ public class UserService {
         return recommendationsFilms;
     }
 
+    /**
+     * Films recommended by {@link FilmRecommendationEngine}, served from {@link FilmRecommendationSnapshots},
+     * hydrated and kept in the order of their score. Films deleted since the snapshot was taken are skipped.
+     */
+    private List<Film> getRecommendationsFromEngine(Integer idRecommendedUser, Integer limitFilms) {
+        List<Integer> ids = recommendationSnapshots.get(idRecommendedUser, limitFilms);
+        Map<Integer, Film> films = filmsByIDFromList(ids).stream()
+                .collect(Collectors.toMap(Film::getId, Function.identity()));
+        log.info("Made a list of recommended films for user id " + idRecommendedUser);
+        return ids.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
     private List<Integer> getIdUsersWithSimilarInterests(int id) {
         return userStorage.getIdUsersWithSimilarInterests(id);
     }
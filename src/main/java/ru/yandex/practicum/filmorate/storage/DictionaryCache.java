@@ -0,0 +1,130 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * Read-through cache of a small reference dictionary such as genres or mpa ratings.
+ * The whole dictionary is loaded on first use into an immutable array indexed by id, together with
+ * the JSON of the full list, and reloaded once the ttl expires or an id missing from the cache
+ * turns up in the database. While an expired dictionary is reloaded, other readers keep getting the old one
+ * instead of waiting, since they may hold pooled connections the reload needs.
+ */
+@Slf4j
+public class DictionaryCache<T> {
+    private final AbstractDictionary<T> storage;
+    private final ToIntFunction<T> idExtractor;
+    private final ObjectMapper objectMapper;
+    private final long ttlNanos;
+    private final Lock reloadLock = new ReentrantLock();
+    private volatile Snapshot<T> snapshot;
+
+    public DictionaryCache(AbstractDictionary<T> storage, ToIntFunction<T> idExtractor,
+                           ObjectMapper objectMapper, Duration ttl) {
+        this.storage = storage;
+        this.idExtractor = idExtractor;
+        this.objectMapper = objectMapper;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Returns the entry with the given id, falling back to the storage when the id is not cached.
+     * The storage throws NotFoundException for ids that do not exist.
+     */
+    public T getById(int id) {
+        return find(id).orElseGet(() -> {
+            T entry = storage.getById(id);
+            refresh();
+            return entry;
+        });
+    }
+
+    /**
+     * Looks the entry up in the cache only, without a database round trip on a miss.
+     */
+    public Optional<T> find(int id) {
+        T[] byId = snapshot().byId;
+        return id >= 0 && id < byId.length ? Optional.ofNullable(byId[id]) : Optional.empty();
+    }
+
+    public List<T> getAll() {
+        return snapshot().all;
+    }
+
+    /**
+     * Returns the cached JSON of the whole dictionary. The array is shared and must not be modified.
+     */
+    public byte[] getAllAsJson() {
+        return snapshot().allJson;
+    }
+
+    public void refresh() {
+        snapshot = null;
+    }
+
+    private Snapshot<T> snapshot() {
+        Snapshot<T> current = snapshot;
+        if (current != null && !isExpired(current)) {
+            return current;
+        }
+        if (current == null) {
+            reloadLock.lock();
+        } else if (!reloadLock.tryLock()) {
+            return current;
+        }
+        try {
+            current = snapshot;
+            if (current == null || isExpired(current)) {
+                current = load();
+                snapshot = current;
+            }
+            return current;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private boolean isExpired(Snapshot<T> snapshot) {
+        return System.nanoTime() - snapshot.loadedAt > ttlNanos;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Snapshot<T> load() {
+        List<T> all = new ArrayList<>();
+        JdbcRoundTrips.warmUp(() -> all.addAll(storage.getAll()));
+        int maxId = all.stream().mapToInt(idExtractor).max().orElse(-1);
+        T[] byId = (T[]) new Object[maxId + 1];
+        all.forEach(entry -> byId[idExtractor.applyAsInt(entry)] = entry);
+        try {
+            byte[] allJson = objectMapper.writeValueAsBytes(all);
+            log.info("reference dictionary loaded with {} entries", all.size());
+            return new Snapshot<>(byId, Collections.unmodifiableList(all), allJson, System.nanoTime());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("reference dictionary can not be serialized", e);
+        }
+    }
+
+    private static class Snapshot<T> {
+        private final T[] byId;
+        private final List<T> all;
+        private final byte[] allJson;
+        private final long loadedAt;
+
+        Snapshot(T[] byId, List<T> all, byte[] allJson, long loadedAt) {
+            this.byId = byId;
+            this.all = all;
+            this.allJson = allJson;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Ids of the rows of an entity table as a compressed bitmap, for existence checks that do not load the entity.
+ * <p>
+ * The bitmap is filled from the database on first use. Storages add an id as soon as they insert the row,
+ * before the transaction commits, and remove it once the delete has committed, so the bitmap holds every
+ * existing id and possibly a few that are gone or were rolled back. An id missing from it is answered
+ * without a database round trip, an id found in it is confirmed with a primary key lookup.
+ */
+@Slf4j
+public class IdBitmap<T> {
+    private final JdbcTemplate jdbcTemplate;
+    private final String table;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final RoaringBitmap ids = new RoaringBitmap();
+    private volatile boolean loaded;
+
+    public IdBitmap(JdbcTemplate jdbcTemplate, String table) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = table;
+    }
+
+    public boolean exists(Integer id) {
+        if (id == null) {
+            return false;
+        }
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            if (!ids.contains(id)) {
+                return false;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE id = ?",
+                Integer.class, id);
+        return count != null && count == 1;
+    }
+
+    /**
+     * Adds the id of an inserted row. Also called before the first load, which merges the ids it reads,
+     * since the row may not be committed yet when the load runs.
+     */
+    public void add(int id) {
+        lock.writeLock().lock();
+        try {
+            ids.add(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            ids.remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            JdbcRoundTrips.warmUp(() -> jdbcTemplate.query("SELECT id FROM " + table + " ORDER BY id",
+                    rs -> {
+                        ids.add(rs.getInt("id"));
+                    }));
+            ids.runOptimize();
+            loaded = true;
+            log.info("id bitmap of {} built with {} ids", table, ids.getCardinality());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Number of statements the current thread has sent to the database. Every execute call of a statement
+ * obtained from a {@link #counting} data source is one round trip, a batch included.
+ * <p>
+ * Statements run by {@link #warmUp} build an in-memory index or cache once and are counted again separately,
+ * so that budgets can leave them out. The counts are never reset, callers take the difference of two readings.
+ */
+public final class JdbcRoundTrips {
+    private static final ThreadLocal<Counts> COUNTS = ThreadLocal.withInitial(Counts::new);
+
+    private JdbcRoundTrips() {
+    }
+
+    public static long get() {
+        return COUNTS.get().total;
+    }
+
+    public static long getWarmUps() {
+        return COUNTS.get().warmUps;
+    }
+
+    /**
+     * Runs the load of an index or cache, counting its statements as warm-up ones as well.
+     */
+    public static void warmUp(Runnable load) {
+        Counts counts = COUNTS.get();
+        counts.warmUpDepth++;
+        try {
+            load.run();
+        } finally {
+            counts.warmUpDepth--;
+        }
+    }
+
+    /**
+     * Wraps the data source so that the statements of its connections are counted.
+     */
+    public static DataSource counting(DataSource dataSource) {
+        return new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return countingConnection(super.getConnection());
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return countingConnection(super.getConnection(username, password));
+            }
+        };
+    }
+
+    private static Connection countingConnection(Connection connection) {
+        return proxy(Connection.class, (method, args) -> {
+            Object result = method.invoke(connection, args);
+            if (result instanceof CallableStatement) {
+                return countingStatement(CallableStatement.class, (CallableStatement) result);
+            }
+            if (result instanceof PreparedStatement) {
+                return countingStatement(PreparedStatement.class, (PreparedStatement) result);
+            }
+            if (result instanceof Statement) {
+                return countingStatement(Statement.class, (Statement) result);
+            }
+            return result;
+        });
+    }
+
+    private static <T extends Statement> T countingStatement(Class<T> type, T statement) {
+        return proxy(type, (method, args) -> {
+            //Counted before the call, a statement failing in the database has made its round trip too
+            if (method.getName().startsWith("execute")) {
+                COUNTS.get().add();
+            }
+            return method.invoke(statement, args);
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, Invocation invocation) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getName().equals("equals") && method.getParameterCount() == 1) {
+                return proxy == args[0];
+            }
+            if (method.getName().equals("hashCode") && method.getParameterCount() == 0) {
+                return System.identityHashCode(proxy);
+            }
+            try {
+                return invocation.invoke(method, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return type.cast(Proxy.newProxyInstance(JdbcRoundTrips.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static class Counts {
+        private long total;
+        private long warmUps;
+        private int warmUpDepth;
+
+        void add() {
+            total++;
+            if (warmUpDepth > 0) {
+                warmUps++;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Invocation {
+        Object invoke(Method method, Object[] args) throws InvocationTargetException, IllegalAccessException;
+    }
+}
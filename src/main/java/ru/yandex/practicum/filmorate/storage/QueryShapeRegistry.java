@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Statements with lists of ids in IN conditions. The list of a statement is padded to the next power of two
+ * by repeating its last id, so any number of ids maps to one of a few statement texts per query shape,
+ * and H2 finds them parsed in its per-session statement cache instead of parsing a new text on every call.
+ * <p>
+ * A request served by a statement text the registry built before is counted as reused, the first request
+ * for a list size bucket as built, in the {@code filmorate.query.shapes.statements} metric tagged with
+ * the shape name. The metric counts reuse of the text only, whether H2 still holds the statement parsed
+ * in the session of the connection is not seen here.
+ */
+@Component
+public class QueryShapeRegistry {
+    private static final String METRIC = "filmorate.query.shapes.statements";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Shape> shapes = new ConcurrentHashMap<>();
+
+    public QueryShapeRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Returns the statement of the shape for the given number of ids. Every %s (or %1$s) of the template
+     * is replaced with the placeholders of one padded list.
+     */
+    public String inList(String shape, String template, int size) {
+        int bucket = bucket(size);
+        Shape statements = shapes.computeIfAbsent(shape, this::newShape);
+        String statement = statements.byBucket.get(bucket);
+        if (statement != null) {
+            statements.reused.increment();
+            return statement;
+        }
+        statements.built.increment();
+        return statements.byBucket.computeIfAbsent(bucket, b ->
+                String.format(template, String.join(",", Collections.nCopies(b, "?"))));
+    }
+
+    /**
+     * Parameters for a statement of {@link #inList}: the ids padded to their bucket, repeated for each
+     * of the given number of lists.
+     */
+    public static Object[] padded(List<Integer> ids, int lists) {
+        int bucket = bucket(ids.size());
+        Object[] params = new Object[bucket * lists];
+        for (int list = 0; list < lists; list++) {
+            int offset = list * bucket;
+            for (int i = 0; i < ids.size(); i++) {
+                params[offset + i] = ids.get(i);
+            }
+            Arrays.fill(params, offset + ids.size(), offset + bucket, ids.get(ids.size() - 1));
+        }
+        return params;
+    }
+
+    /**
+     * Share of the requests of the shape served by an already built statement text, NaN before the first request.
+     */
+    public double getReuseRate(String shape) {
+        Shape statements = shapes.get(shape);
+        if (statements == null) {
+            return Double.NaN;
+        }
+        double reused = statements.reused.count();
+        return reused / (reused + statements.built.count());
+    }
+
+    static int bucket(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("id list must not be empty");
+        }
+        return size == 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    private Shape newShape(String shape) {
+        return new Shape(meterRegistry.counter(METRIC, "shape", shape, "result", "reused"),
+                meterRegistry.counter(METRIC, "shape", shape, "result", "built"));
+    }
+
+    private static class Shape {
+        private final Map<Integer, String> byBucket = new ConcurrentHashMap<>();
+        private final Counter reused;
+        private final Counter built;
+
+        Shape(Counter reused, Counter built) {
+            this.reused = reused;
+            this.built = built;
+        }
+    }
+}
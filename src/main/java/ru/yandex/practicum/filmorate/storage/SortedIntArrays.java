@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+
+/**
+ * Set operations on sorted arrays of distinct ints. Arrays are never modified, changes return a copy.
+ */
+public final class SortedIntArrays {
+    /**
+     * Size ratio from which intersection gallops through the larger array instead of merging.
+     */
+    private static final int GALLOP_RATIO = 32;
+
+    private SortedIntArrays() {
+    }
+
+    public static int[] insert(int[] values, int value) {
+        int position = Arrays.binarySearch(values, value);
+        if (position >= 0) {
+            return values;
+        }
+        position = -position - 1;
+        int[] result = new int[values.length + 1];
+        System.arraycopy(values, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(values, position, result, position + 1, values.length - position);
+        return result;
+    }
+
+    public static int[] remove(int[] values, int value) {
+        int position = Arrays.binarySearch(values, value);
+        if (position < 0) {
+            return values;
+        }
+        int[] result = new int[values.length - 1];
+        System.arraycopy(values, 0, result, 0, position);
+        System.arraycopy(values, position + 1, result, position, values.length - position - 1);
+        return result;
+    }
+
+    /**
+     * Returns the sorted intersection. Arrays of similar size are merged in one linear pass, when one is much
+     * smaller its values are looked up in the other by exponential search from the last match.
+     */
+    public static int[] intersect(int[] a, int[] b) {
+        if (a.length > b.length) {
+            return intersect(b, a);
+        }
+        int[] result = new int[a.length];
+        int size = 0;
+        if (a.length == 0) {
+            return result;
+        }
+        if (b.length / a.length >= GALLOP_RATIO) {
+            int from = 0;
+            for (int value : a) {
+                from = gallop(b, from, value);
+                if (from == b.length) {
+                    break;
+                }
+                if (b[from] == value) {
+                    result[size++] = value;
+                }
+            }
+        } else {
+            int i = 0;
+            int j = 0;
+            while (i < a.length && j < b.length) {
+                if (a[i] < b[j]) {
+                    i++;
+                } else if (a[i] > b[j]) {
+                    j++;
+                } else {
+                    result[size++] = a[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Index of the first element of values not less than value, searching from the given index.
+     */
+    private static int gallop(int[] values, int from, int value) {
+        int step = 1;
+        int low = from;
+        int high = from;
+        while (high < values.length && values[high] < value) {
+            low = high + 1;
+            high = from + step;
+            step <<= 1;
+        }
+        high = Math.min(high, values.length);
+        int position = Arrays.binarySearch(values, low, high, value);
+        return position >= 0 ? position : -position - 1;
+    }
+}
@@ -0,0 +1,165 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.reactivestreams.Publisher;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.model.enums.View;
+
+import java.lang.reflect.Array;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Times every call of a storage bean. Each call is recorded in
+ * <ul>
+ *     <li>{@code filmorate.storage.calls}, latency with p50, p99 and p999 and a percentile histogram,</li>
+ *     <li>{@code filmorate.storage.rows}, number of entities returned, for calls returning entities,</li>
+ *     <li>{@code filmorate.storage.roundtrips}, number of statements sent to the database,</li>
+ * </ul>
+ * tagged with the storage, the method and the query shape of the call. The shape lists the parameters
+ * the call was given a value for, with a {@link View} by its label, since that is what picks the statement
+ * among the variants a method builds, e.g. {@code count,year,full} for the top films of a year. Null and -1,
+ * the value of an omitted filter, are no value.
+ * <p>
+ * Calls a storage makes to its own methods are not proxied and count as part of the outer call. A call
+ * returning a {@link Flux} or {@link Mono} does its work once subscribed, so it is timed from the subscription
+ * until the publisher terminates or is cancelled, and its rows are the elements emitted. Its statements do not
+ * go through JDBC and are not counted.
+ */
+@Aspect
+@Component
+public class StorageMetricsAspect {
+    private static final String CALLS = "filmorate.storage.calls";
+    private static final String ROWS = "filmorate.storage.rows";
+    private static final String ROUND_TRIPS = "filmorate.storage.roundtrips";
+    private static final Integer NO_FILTER = -1;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+
+    public StorageMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(public * ru.yandex.practicum.filmorate.storage..*Storage.*(..))")
+    public Object record(ProceedingJoinPoint call) throws Throwable {
+        MethodSignature signature = (MethodSignature) call.getSignature();
+        String storage = call.getTarget().getClass().getSimpleName();
+        String shape = shape(signature.getParameterNames(), call.getArgs());
+        Meters callMeters = meters.computeIfAbsent(storage + '.' + signature.getName() + '(' + shape + ')',
+                key -> new Meters(storage, signature.getName(), shape));
+
+        if (Publisher.class.isAssignableFrom(signature.getReturnType())) {
+            return recordReactive(call.proceed(), callMeters);
+        }
+
+        long roundTrips = JdbcRoundTrips.get();
+        long start = System.nanoTime();
+        Object result = null;
+        try {
+            result = call.proceed();
+            return result;
+        } finally {
+            callMeters.calls.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            callMeters.roundTrips.record(JdbcRoundTrips.get() - roundTrips);
+            int rows = rows(result);
+            if (rows >= 0) {
+                callMeters.rows.record(rows);
+            }
+        }
+    }
+
+    private static Object recordReactive(Object result, Meters callMeters) {
+        if (result == null) {
+            return null;
+        }
+        Flux<?> timed = Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicInteger rows = new AtomicInteger();
+            return Flux.from((Publisher<?>) result)
+                    .doOnNext(element -> rows.incrementAndGet())
+                    .doFinally(signal -> {
+                        callMeters.calls.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        callMeters.rows.record(rows.get());
+                    });
+        });
+        return result instanceof Mono ? Mono.from(timed) : timed;
+    }
+
+    static String shape(String[] names, Object[] args) {
+        if (args.length == 0) {
+            return "all";
+        }
+        StringJoiner shape = new StringJoiner(",");
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] instanceof View) {
+                shape.add(((View) args[i]).label);
+            } else if (args[i] != null && !NO_FILTER.equals(args[i])) {
+                shape.add(names == null ? "arg" + i : names[i]);
+            }
+        }
+        return shape.length() == 0 ? "none" : shape.toString();
+    }
+
+    /**
+     * Entities in the result, -1 for results that are not entities, e.g. counts and flags.
+     */
+    private static int rows(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Map) {
+            return ((Map<?, ?>) result).size();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        if (result.getClass().isArray()) {
+            return Array.getLength(result);
+        }
+        if (result instanceof Number || result instanceof Boolean || result instanceof CharSequence) {
+            return -1;
+        }
+        return 1;
+    }
+
+    private class Meters {
+        private final Timer calls;
+        private final DistributionSummary rows;
+        private final DistributionSummary roundTrips;
+
+        Meters(String storage, String method, String shape) {
+            calls = Timer.builder(CALLS)
+                    .tags("storage", storage, "method", method, "shape", shape)
+                    .publishPercentiles(0.5, 0.99, 0.999)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.of(100, ChronoUnit.MICROS))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(meterRegistry);
+            rows = DistributionSummary.builder(ROWS)
+                    .tags("storage", storage, "method", method, "shape", shape)
+                    .register(meterRegistry);
+            roundTrips = DistributionSummary.builder(ROUND_TRIPS)
+                    .tags("storage", storage, "method", method, "shape", shape)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.mappers.DirectorMapper;
 import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
 
 import java.util.List;
 
@@ -17,8 +18,8 @@ import java.util.List;
 @RequiredArgsConstructor
 @Slf4j
 public class DirectorDbStorage implements DirectorStorage {
-
     private final JdbcTemplate jdbcTemplate;
+    private final FilmSearchIndex searchIndex;
 
     @Override
     public List<Director> getAll() {
@@ -28,9 +29,8 @@ public class DirectorDbStorage implements DirectorStorage {
 
     @Override
     public Director findById(Integer id) {
-        String sqlQuery = "SELECT * FROM DIRECTORS WHERE ID = ?";
         try {
-            return jdbcTemplate.queryForObject(sqlQuery, DirectorMapper::mapToDirector, id);
+            return jdbcTemplate.queryForObject(DirectorQueries.DIRECTOR_BY_ID, DirectorMapper::mapToDirector, id);
         } catch (EmptyResultDataAccessException e) {
             throw new NotFoundException("id", String.format("Director with id = %d does not exist", id));
         }
@@ -43,6 +43,7 @@ public class DirectorDbStorage implements DirectorStorage {
                 .usingGeneratedKeyColumns("id");
         int id = jdbcInsert.executeAndReturnKey(new BeanPropertySqlParameterSource(director)).intValue();
         director.setId(id);
+        searchIndex.putDirector(director);
         log.info("Director with id = {} added", director.getId());
         return director;
     }
@@ -52,6 +53,7 @@ public class DirectorDbStorage implements DirectorStorage {
         findById(director.getId());
         String sqlQuery = "UPDATE DIRECTORS SET NAME = ? WHERE ID = ?";
         jdbcTemplate.update(sqlQuery, director.getName(), director.getId());
+        searchIndex.putDirector(director);
         return director;
     }
 
@@ -60,14 +62,11 @@ public class DirectorDbStorage implements DirectorStorage {
         findById(id);
         String sqlQuery = "DELETE DIRECTORS WHERE ID = ?";
         jdbcTemplate.update(sqlQuery, id);
+        searchIndex.removeDirector(id);
     }
 
     @Override
     public List<Director> getDirectorsByFilmId(int id) {
-        String sqlQuery = "SELECT D.* FROM FILMS_DIRECTORS FD " +
-                "INNER JOIN DIRECTORS D on D.ID = FD.DIRECTOR_ID " +
-                "WHERE FD.FILM_ID = ? " +
-                "ORDER BY ID";
-        return jdbcTemplate.query(sqlQuery, DirectorMapper::mapToDirector, id);
+        return jdbcTemplate.query(DirectorQueries.DIRECTORS_OF_FILM, DirectorMapper::mapToDirector, id);
     }
 }
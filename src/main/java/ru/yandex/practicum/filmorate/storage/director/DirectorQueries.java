@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.storage.director;
+
+/**
+ * Statements of {@link DirectorDbStorage} reading directors.
+ */
+public final class DirectorQueries {
+    public static final String DIRECTOR_BY_ID = "SELECT * FROM DIRECTORS WHERE ID = ?";
+    public static final String DIRECTORS_OF_FILM = "SELECT D.* FROM FILMS_DIRECTORS FD " +
+            "INNER JOIN DIRECTORS D on D.ID = FD.DIRECTOR_ID " +
+            "WHERE FD.FILM_ID = ? " +
+            "ORDER BY ID";
+
+    private DirectorQueries() {
+    }
+}
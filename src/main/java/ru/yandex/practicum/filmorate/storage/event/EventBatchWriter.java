@@ -0,0 +1,299 @@
+package ru.yandex.practicum.filmorate.storage.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.model.Event;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Background writer of the events feed. Events are put into a bounded queue and written to EVENTS
+ * in JDBC batches by a single writer thread.
+ * <p>
+ * In {@link Mode#WAIT_FOR_FLUSH} mode the caller waits until the batch holding its event is written,
+ * so concurrent mutations share one batch insert. In {@link Mode#FIRE_AND_FORGET} mode the caller
+ * returns right after queueing. When the queue stays full longer than the offer timeout, the caller
+ * writes its event itself, which slows producers down instead of dropping events. Once the writer is
+ * stopped, new events are rejected.
+ * <p>
+ * An event written inside a transaction is queued when the transaction commits and dropped if it rolls back.
+ * Its caller does not wait for the flush while it holds the pooled connection of the transaction, which
+ * the writer thread may need, and with the pool exhausted by such callers neither would proceed. The wait
+ * is done by {@link EventFlushAspect} once the outermost transactional method returns.
+ */
+@Component
+@Slf4j
+public class EventBatchWriter {
+    public enum Mode {
+        FIRE_AND_FORGET, WAIT_FOR_FLUSH
+    }
+
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+    private static final ThreadLocal<List<PendingEvent>> COMMITTED = ThreadLocal.withInitial(ArrayList::new);
+
+    private final EventStorage eventStorage;
+    private final Mode mode;
+    private final int batchSize;
+    private final long offerTimeoutMillis;
+    private final long flushTimeoutMillis;
+    private final BlockingQueue<PendingEvent> queue;
+    private final Map<Integer, CompletableFuture<Void>> lastPendingByUser = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<CompletableFuture<Boolean>>> nextWriteByUser = new ConcurrentHashMap<>();
+    private Thread writerThread;
+    private volatile boolean running;
+
+    public EventBatchWriter(EventStorage eventStorage,
+                            @Value("${filmorate.events.writer.mode:WAIT_FOR_FLUSH}") Mode mode,
+                            @Value("${filmorate.events.writer.queue-capacity:10000}") int queueCapacity,
+                            @Value("${filmorate.events.writer.batch-size:500}") int batchSize,
+                            @Value("${filmorate.events.writer.offer-timeout:100}") long offerTimeoutMillis,
+                            @Value("${filmorate.events.writer.flush-timeout:5000}") long flushTimeoutMillis) {
+        this.eventStorage = eventStorage;
+        this.mode = mode;
+        this.batchSize = batchSize;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.flushTimeoutMillis = flushTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::writeLoop, "event-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * The writer thread is not interrupted, since an interrupt may close the file channel of an H2 database.
+     * It stops after its current poll, and whatever is left in the queue is written here.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writerThread.join(flushTimeoutMillis);
+        List<PendingEvent> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        write(rest);
+    }
+
+    public void write(Event event) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            PendingEvent pending = queue(event);
+            if (mode == Mode.WAIT_FOR_FLUSH) {
+                await(pending);
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                PendingEvent pending = queue(event);
+                if (mode == Mode.WAIT_FOR_FLUSH) {
+                    COMMITTED.get().add(pending);
+                }
+            }
+        });
+    }
+
+    /**
+     * Waits for the events queued by the transactions this thread has committed, unless a transaction
+     * is still active. A failed or late write is logged, the changes it was written for are committed.
+     */
+    public void awaitCommitted() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return;
+        }
+        List<PendingEvent> committed = COMMITTED.get();
+        if (committed.isEmpty()) {
+            return;
+        }
+        COMMITTED.remove();
+        for (PendingEvent pending : committed) {
+            try {
+                await(pending);
+            } catch (CompletionException e) {
+                log.error("event of user with id {} was not written", pending.event.getUserId(), e.getCause());
+            }
+        }
+    }
+
+    private PendingEvent queue(Event event) {
+        if (!running) {
+            throw new IllegalStateException(String.format(
+                    "event writer is stopped, event of user with id %d is not written", event.getUserId()));
+        }
+        PendingEvent pending = new PendingEvent(event);
+        //Concurrent events of one user may be written out of order, so the entry covers all of them
+        lastPendingByUser.compute(event.getUserId(), (id, previous) -> previous == null || previous.isDone()
+                ? pending.written
+                : CompletableFuture.allOf(previous, pending.written));
+
+        boolean queued;
+        try {
+            queued = queue.offer(pending, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) {
+            log.warn("event queue is full, writing event of user with id {} synchronously", event.getUserId());
+            write(List.of(pending));
+        }
+        //Stopped while offering, nothing takes the event from the queue if stop() has drained it already
+        if (!running && queue.remove(pending)) {
+            IllegalStateException stopped = new IllegalStateException(String.format(
+                    "event writer is stopped, event of user with id %d is not written", event.getUserId()));
+            pending.written.completeExceptionally(stopped);
+            pending.forgetIfLast();
+            throw stopped;
+        }
+        return pending;
+    }
+
+    /**
+     * Waits up to the flush timeout. An event that is not written by then stays queued.
+     */
+    private void await(PendingEvent pending) {
+        try {
+            pending.written.get(flushTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("event of user with id {} is not written after {} ms, not waiting for it",
+                    pending.event.getUserId(), flushTimeoutMillis);
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits, up to the flush timeout, until every event queued so far for the user is written, so the feed
+     * read right after a mutation contains it.
+     */
+    public void awaitPending(int userId) {
+        try {
+            getPending(userId).get(flushTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            log.warn("feed of user with id {} may miss events that failed to write", userId);
+        } catch (TimeoutException e) {
+            log.warn("feed of user with id {} may miss events not written after {} ms", userId, flushTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns a future completed once every event queued so far for the user is written, for callers
+     * that must not block on {@link #awaitPending(int)}. It completes exceptionally if one of them failed.
+     */
+    public CompletableFuture<Void> getPending(int userId) {
+        CompletableFuture<Void> last = lastPendingByUser.get(userId);
+        return last == null ? CompletableFuture.completedFuture(null) : last;
+    }
+
+    /**
+     * Returns a future completed with true once the next event of the user is written, or with false
+     * once the timeout passes. The caller is unsubscribed when the future completes in any way,
+     * so a caller that no longer needs it should cancel it.
+     */
+    public CompletableFuture<Boolean> awaitNextWrite(int userId, long timeout, TimeUnit unit) {
+        CompletableFuture<Boolean> nextWrite = new CompletableFuture<>();
+        //The sets are only changed inside of the map operations, which are atomic per user
+        nextWriteByUser.compute(userId, (id, waiting) -> {
+            Set<CompletableFuture<Boolean>> subscribed = waiting == null ? new HashSet<>() : waiting;
+            subscribed.add(nextWrite);
+            return subscribed;
+        });
+        nextWrite.completeOnTimeout(false, timeout, unit)
+                .whenComplete((written, e) -> nextWriteByUser.computeIfPresent(userId, (id, waiting) -> {
+                    waiting.remove(nextWrite);
+                    return waiting.isEmpty() ? null : waiting;
+                }));
+        return nextWrite;
+    }
+
+    /**
+     * Number of users with at least one caller waiting for their next event.
+     */
+    public int getWaitingUsers() {
+        return nextWriteByUser.size();
+    }
+
+    private void writeLoop() {
+        List<PendingEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                PendingEvent first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingEvent> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Event> events = new ArrayList<>(batch.size());
+        batch.forEach(pending -> events.add(pending.event));
+        try {
+            eventStorage.addNewEvents(events);
+            batch.forEach(PendingEvent::complete);
+        } catch (RuntimeException e) {
+            log.warn("batch of {} events failed, writing them one by one", batch.size(), e);
+            for (PendingEvent pending : batch) {
+                try {
+                    eventStorage.addNewEvent(pending.event, pending.event.getEntityTableName());
+                    pending.complete();
+                } catch (RuntimeException single) {
+                    log.error("event of user with id {} was not written", pending.event.getUserId(), single);
+                    pending.written.completeExceptionally(single);
+                    pending.forgetIfLast();
+                }
+            }
+        }
+    }
+
+    private class PendingEvent {
+        private final Event event;
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+
+        PendingEvent(Event event) {
+            this.event = event;
+        }
+
+        void complete() {
+            written.complete(null);
+            forgetIfLast();
+            Set<CompletableFuture<Boolean>> waiting = nextWriteByUser.remove(event.getUserId());
+            if (waiting != null) {
+                waiting.forEach(nextWrite -> nextWrite.complete(true));
+            }
+        }
+
+        void forgetIfLast() {
+            lastPendingByUser.computeIfPresent(event.getUserId(), (id, last) -> last.isDone() ? null : last);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.storage.event;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
@@ -9,21 +10,23 @@ import ru.yandex.practicum.filmorate.mappers.EventMapper;
 import ru.yandex.practicum.filmorate.model.Event;
 
 import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.List;
 
 @Component
 @RequiredArgsConstructor
 public class EventDbStorage implements EventStorage{
-
     private final JdbcTemplate jdbcTemplate;
 
     @Override
     public List<Event> getFeedByUserId(int id) {
-        String query = "SELECT event_id, user_id, event_time, event_type," +
-                " operation, entity_id FROM events WHERE user_id = ?" +
-                "ORDER BY event_id";
-        return jdbcTemplate.query(query, EventMapper::mapToFeed, id);
+        return jdbcTemplate.query(EventQueries.FEED, EventMapper::mapToFeed, id);
+    }
+
+    @Override
+    public List<Event> getFeedByUserId(int id, int sinceEventId, int limit) {
+        return jdbcTemplate.query(EventQueries.FEED_PAGE, EventMapper::mapToFeed, id, sinceEventId, limit);
     }
 
     @Override
@@ -46,5 +49,29 @@ public class EventDbStorage implements EventStorage{
         event.setEventId(keyHolder.getKey().intValue());
         return event;
     }
+
+    @Override
+    public void addNewEvents(List<Event> events) {
+        String createQuery = "INSERT INTO events(user_id, event_type, operation, entity_id, entity_table_name," +
+                " event_time) VALUES (?, ?, ?, ?, ?, ?)";
+
+        jdbcTemplate.batchUpdate(createQuery, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement stmt, int i) throws SQLException {
+                Event event = events.get(i);
+                stmt.setInt(1, event.getUserId());
+                stmt.setString(2, event.getEventType().name());
+                stmt.setString(3, event.getOperation().name());
+                stmt.setInt(4, event.getEntityId());
+                stmt.setString(5, event.getEntityTableName());
+                stmt.setTimestamp(6, new Timestamp(event.getEventTime().getTime()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return events.size();
+            }
+        });
+    }
 }
 
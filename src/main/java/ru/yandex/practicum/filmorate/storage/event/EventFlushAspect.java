@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.storage.event;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Waits for the feed events of a transactional method once its transaction is over and its connection
+ * is back in the pool, for the {@link EventBatchWriter.Mode#WAIT_FOR_FLUSH} mode. The advice runs outside
+ * the transaction advice, and of nested transactional methods only the outermost one waits.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class EventFlushAspect {
+    private final EventBatchWriter eventWriter;
+
+    @Around("@annotation(org.springframework.transaction.annotation.Transactional)" +
+            " || @within(org.springframework.transaction.annotation.Transactional)")
+    public Object awaitEvents(ProceedingJoinPoint call) throws Throwable {
+        try {
+            return call.proceed();
+        } finally {
+            eventWriter.awaitCommitted();
+        }
+    }
+}
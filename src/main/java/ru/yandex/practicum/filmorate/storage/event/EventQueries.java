@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.storage.event;
+
+/**
+ * Statements of {@link EventDbStorage} reading the feed of a user.
+ */
+public final class EventQueries {
+    public static final String FEED = "SELECT event_id, user_id, event_time, event_type," +
+            " operation, entity_id FROM events WHERE user_id = ?" +
+            "ORDER BY event_id";
+    public static final String FEED_PAGE = "SELECT event_id, user_id, event_time, event_type," +
+            " operation, entity_id FROM events WHERE user_id = ? AND event_id > ?" +
+            " ORDER BY event_id LIMIT ?";
+
+    private EventQueries() {
+    }
+}
@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.storage.event;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.mappers.EventMapper;
+import ru.yandex.practicum.filmorate.model.Event;
+
+import java.util.List;
+
+/**
+ * Non-blocking feed reads over R2DBC for the {@code reactive} profile. The whole feed is read a chunk
+ * of events at a time, the next one once the subscriber asks for more, like the films of
+ * {@code FilmR2dbcStorage}.
+ */
+@Component
+@Profile("reactive")
+@RequiredArgsConstructor
+public class EventR2dbcStorage {
+    private static final int CHUNK_SIZE = 256;
+    private final DatabaseClient databaseClient;
+
+    public Flux<Event> getFeedByUserId(int id) {
+        return getChunk(id, 0, CHUNK_SIZE)
+                .expand(chunk -> chunk.size() < CHUNK_SIZE
+                        ? Mono.empty()
+                        : getChunk(id, chunk.get(chunk.size() - 1).getEventId(), CHUNK_SIZE))
+                .flatMapIterable(chunk -> chunk);
+    }
+
+    public Flux<Event> getFeedByUserId(int id, int sinceEventId, int limit) {
+        return getChunk(id, sinceEventId, limit)
+                .flatMapIterable(chunk -> chunk);
+    }
+
+    private Mono<List<Event>> getChunk(int id, int sinceEventId, int limit) {
+        //The driver does not decode ENUM columns, they are read as text
+        String query = "SELECT event_id, user_id, event_time, CAST(event_type AS VARCHAR) AS event_type," +
+                " CAST(operation AS VARCHAR) AS operation, entity_id FROM events" +
+                " WHERE user_id = :id AND event_id > :sinceEventId ORDER BY event_id LIMIT :limit";
+        return databaseClient.sql(query)
+                .bind("id", id)
+                .bind("sinceEventId", sinceEventId)
+                .bind("limit", limit)
+                .map((row, metadata) -> EventMapper.mapRowToFeed(row))
+                .all()
+                .collectList();
+    }
+}
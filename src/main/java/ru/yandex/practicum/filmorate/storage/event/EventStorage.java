@@ -8,5 +8,12 @@ public interface EventStorage {
 
     List<Event> getFeedByUserId(int id);
 
+    /**
+     * Returns up to limit events of the user with event id greater than sinceEventId, ordered by event id.
+     */
+    List<Event> getFeedByUserId(int id, int sinceEventId, int limit);
+
     Event addNewEvent(Event event, String tableName);
+
+    void addNewEvents(List<Event> events);
 }
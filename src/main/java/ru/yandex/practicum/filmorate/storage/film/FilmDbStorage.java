@@ -3,53 +3,177 @@ package ru.yandex.practicum.filmorate.storage.film;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.yandex.practicum.filmorate.exceptions.DuplicateEventException;
 import ru.yandex.practicum.filmorate.exceptions.*;
+import ru.yandex.practicum.filmorate.mappers.DirectorMapper;
 import ru.yandex.practicum.filmorate.mappers.FilmMapper;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaCategory;
 import ru.yandex.practicum.filmorate.model.enums.SearchParam;
+import ru.yandex.practicum.filmorate.model.enums.View;
+import ru.yandex.practicum.filmorate.storage.DictionaryCache;
+import ru.yandex.practicum.filmorate.storage.IdBitmap;
+import ru.yandex.practicum.filmorate.storage.QueryShapeRegistry;
 
+import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Primary
 @Component("filmDbStorage")
 @Slf4j
 @RequiredArgsConstructor
 public class FilmDbStorage implements FilmStorage {
+    //Covers a page of the maximum size, so its attributes are loaded in one round trip
+    private static final int ID_CHUNK_SIZE = 1024;
+    private static final int STREAM_FETCH_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmRateBuffer rateBuffer;
+    private final FilmSearchIndex searchIndex;
+    private final FilmRecommendationEngine recommendationEngine;
+    private final FilmRecommendationSnapshots recommendationSnapshots;
+    private final DictionaryCache<Genre> genreCache;
+    private final DictionaryCache<MpaCategory> mpaCache;
+    private final QueryShapeRegistry queryShapes;
+    private final FilmQueries filmQueries;
+    private final IdBitmap<Film> filmIds;
 
     @Override
     public List<Film> getAll() {
-        String query = "SELECT f.*, mr.name as mpa_name " +
+        return getAll(View.FULL);
+    }
+
+    @Override
+    public List<Film> getAll(View view) {
+        String query = "SELECT f.* " +
                 "FROM films f " +
-                "left join MPA_RATING MR on f.MPA_RATE_ID = MR.MPA_RATE_ID " +
                 "ORDER BY f.id";
-        List<Film> films = jdbcTemplate.query(query, FilmMapper::mapToFilm);
-        this.setAttributes(films);
+        List<Film> films = queryFilms(query);
+        this.setAttributes(films, view);
+
+        return films;
+    }
+
+    @Override
+    public List<Film> getPage(Integer afterId, Integer limit) {
+        return getPage(afterId, limit, View.FULL);
+    }
+
+    @Override
+    public List<Film> getPage(Integer afterId, Integer limit, View view) {
+        List<Film> films = queryFilms(FilmQueries.FILMS_PAGE, afterId, limit);
+        this.setAttributes(films, view);
 
         return films;
     }
 
+    /**
+     * Walks the catalog with forward-only cursors over films and their attribute tables, all ordered by film id,
+     * and hands each film to the consumer as soon as its genres, directors and likes are merged in.
+     * Only one film is held in memory at a time.
+     */
+    @Override
+    public void streamAll(Consumer<Film> consumer) {
+        String films = "SELECT f.* " +
+                "FROM films f " +
+                "ORDER BY f.id";
+        String genres = "SELECT film_id, genre_id " +
+                "FROM films_genres " +
+                "ORDER BY film_id";
+        String directors = "SELECT fd.film_id, d.id, d.name " +
+                "FROM films_directors fd " +
+                "JOIN directors d ON fd.director_id = d.id " +
+                "ORDER BY fd.film_id";
+        String likes = "SELECT film_id, user_id " +
+                "FROM films_likes " +
+                "ORDER BY film_id";
+
+        //Reference caches are loaded before the connection is taken, a cold load would need another one
+        genreCache.getAll();
+        mpaCache.getAll();
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement filmStmt = prepareCursor(connection, films);
+                 PreparedStatement genreStmt = prepareCursor(connection, genres);
+                 PreparedStatement directorStmt = prepareCursor(connection, directors);
+                 PreparedStatement likeStmt = prepareCursor(connection, likes)) {
+                Map.Entry<ResultSet, Map<Integer, Integer>> ratedFilms =
+                        rateBuffer.read(() -> executeWithPendingRates(filmStmt, films));
+                streamAll(ratedFilms.getKey(), ratedFilms.getValue(), genreStmt, directorStmt, likeStmt, consumer);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * H2 computes the whole result when the query is executed, so the rate changes pending at that point
+     * are the ones missing from its rows.
+     */
+    private Map.Entry<ResultSet, Map<Integer, Integer>> executeWithPendingRates(PreparedStatement stmt, String query) {
+        try {
+            return Map.entry(stmt.executeQuery(), rateBuffer.getPendingDeltas());
+        } catch (SQLException e) {
+            throw jdbcTemplate.getExceptionTranslator().translate("streamAll", query, e);
+        }
+    }
+
+    private void streamAll(ResultSet films, Map<Integer, Integer> pendingRates, PreparedStatement genreStmt,
+                           PreparedStatement directorStmt, PreparedStatement likeStmt,
+                           Consumer<Film> consumer) throws SQLException {
+        try (ResultSet filmRs = films;
+             ResultSet genreRs = genreStmt.executeQuery();
+             ResultSet directorRs = directorStmt.executeQuery();
+             ResultSet likeRs = likeStmt.executeQuery()) {
+            OrderedCursor genreCursor = new OrderedCursor(genreRs);
+            OrderedCursor directorCursor = new OrderedCursor(directorRs);
+            OrderedCursor likeCursor = new OrderedCursor(likeRs);
+
+            int rowNumber = 0;
+            while (filmRs.next()) {
+                Film film = FilmMapper.mapToFilm(filmRs, rowNumber++);
+                filmQueries.setMpaName(film);
+                film.setRate(film.getRate() + pendingRates.getOrDefault(film.getId(), 0));
+                genreCursor.drain(film.getId(),
+                        rs -> film.getGenres().add(filmQueries.toGenre(rs.getInt("genre_id"))));
+                directorCursor.drain(film.getId(), rs -> film.getDirectors().add(DirectorMapper.mapToDirector(rs, 0)));
+                likeCursor.drain(film.getId(), rs -> film.addLike(rs.getInt("user_id")));
+                consumer.accept(film);
+            }
+        }
+    }
+
+    private PreparedStatement prepareCursor(Connection connection, String query) throws SQLException {
+        PreparedStatement stmt = connection.prepareStatement(query,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        stmt.setFetchSize(STREAM_FETCH_SIZE);
+        return stmt;
+    }
+
     @Override
     public Film findById(Integer id) {
         try {
-            String filmQuery = "select f.*, mr.NAME as mpa_name \n" +
-                    " from FILMS f \n" +
-                    " left join MPA_RATING MR on f.MPA_RATE_ID = MR.MPA_RATE_ID \n" +
-                    " where id = ?";
-            Film film = jdbcTemplate.queryForObject(filmQuery, FilmMapper::mapToFilm, id);
+            Film film = rateBuffer.read(() ->
+                    jdbcTemplate.queryForObject(FilmQueries.FILM_BY_ID, this::mapToFilm, id));
 
             this.setAttributes(film);
 
@@ -77,11 +201,17 @@ public class FilmDbStorage implements FilmStorage {
         }, keyHolder);
 
         film.setId(keyHolder.getKey().intValue());
+        filmIds.add(film.getId());
 
         setGenres(film);
 
         setDirectorsToFilm(film);
 
+        afterCommit(() -> {
+            popularityIndex.put(film);
+            searchIndex.putFilm(film);
+        });
+
         return film;
     }
 
@@ -107,6 +237,11 @@ public class FilmDbStorage implements FilmStorage {
 
         setDirectorsToFilm(film);
 
+        afterCommit(() -> {
+            popularityIndex.put(film);
+            searchIndex.putFilm(film);
+        });
+
         return film;
     }
 
@@ -159,231 +294,268 @@ public class FilmDbStorage implements FilmStorage {
         this.isFilmExists(id);
         String query = "delete from films where id = ?";
         jdbcTemplate.update(query, id);
+        afterCommit(() -> {
+            filmIds.remove(id);
+            popularityIndex.remove(id);
+            searchIndex.removeFilm(id);
+            recommendationEngine.removeFilm(id);
+        });
     }
 
+    /**
+     * Adds the like and increments the film rate in one transaction. A duplicate like is detected
+     * by the insert affecting no rows, so there is no separate check query.
+     */
     @Override
+    @Transactional
     public void addLike(Integer filmId, Integer userId) {
-        this.isFilmExists(filmId);
-
-        String checkQuery =
-                "SELECT film_id " +
-                        "FROM films_likes " +
-                        "WHERE user_id = ? " +
-                        "AND film_id = ?;";
+        int inserted;
+        try {
+            inserted = jdbcTemplate.update(FilmQueries.ADD_LIKE, userId, filmId, filmId, userId);
+        } catch (DuplicateKeyException e) {
+            inserted = 0;
+        }
 
-        if (!jdbcTemplate
-                .query(checkQuery, (rs, n) -> rs.getInt("film_id"), userId, filmId)
-                .isEmpty()) {
+        if (inserted == 0) {
+            this.isFilmExists(filmId);
             throw new DuplicateEventException(String.format("User with id %d already liked film with id %d",
-                    filmId, userId));
+                    userId, filmId));
         }
 
-        String query = "merge into films_likes(film_id, user_id) " +
-                "values (?, ?)";
-        jdbcTemplate.update(query, filmId, userId);
-
-        String updateFilmRate = "update films \n " +
-                "set rate = rate + 1 \n " +
-                "where id = ?";
-        jdbcTemplate.update(updateFilmRate, filmId);
+        changeRate(filmId, 1);
+        afterCommit(() -> {
+            recommendationEngine.like(filmId, userId);
+            recommendationSnapshots.likeChanged(filmId, userId);
+        });
 
         log.info("like for film with id={} added", filmId);
     }
 
     @Override
+    @Transactional
     public void deleteLike(Integer filmId, Integer userId) {
-        this.isFilmExists(filmId);
-
-        String checkQuery =
-                "SELECT film_id " +
-                        "FROM films_likes " +
-                        "WHERE user_id = ? " +
-                        "AND film_id = ?;";
+        String query = "delete from films_likes where film_id = ? and user_id = ?";
 
-        if (jdbcTemplate
-                .query(checkQuery, (rs, n) -> rs.getInt("film_id"), userId, filmId)
-                .isEmpty()) {
+        if (jdbcTemplate.update(query, filmId, userId) == 0) {
+            this.isFilmExists(filmId);
             throw new NotFoundException("film", String.format("like from user with id %d to film with id %d not found",
                     userId, filmId));
         }
 
-        String query = "delete from films_likes where film_id = ? and user_id = ?";
-        jdbcTemplate.update(query, filmId, userId);
-
-        String updateFilmRate = "update films \n " +
-                "set rate = rate - 1 \n " +
-                "where id = ?";
-        jdbcTemplate.update(updateFilmRate, filmId);
+        changeRate(filmId, -1);
+        afterCommit(() -> {
+            recommendationEngine.unlike(filmId, userId);
+            recommendationSnapshots.likeChanged(filmId, userId);
+        });
 
         log.info("like for film with id={} deleted", filmId);
     }
 
-    @Override
-    public List<Film> getFilmsTop(Integer count, Integer genreId, Integer year) {
-        String whereYear = year != -1 ? " AND EXTRACT(YEAR FROM f.RELEASE_DATE) = " + year : "";
-        String joinGenres = genreId != -1 ? " left join FILMS_GENRES FG on f.ID = FG.FILM_ID " : "";
-        String whereGenre = genreId != -1 ? " AND FG.GENRE_ID = " + genreId : "";
-        String query = "SELECT f.*, mr.name as mpa_name \n " +
-                "FROM FILMS f \n " +
-                "left join MPA_RATING MR on f.MPA_RATE_ID = MR.MPA_RATE_ID \n " + joinGenres +
-                "WHERE 1=1 " + whereGenre + whereYear +
-                " ORDER BY f.rate DESC, f.ID " +
-                "LIMIT ? ";
-
-        List<Film> filmsSorted = jdbcTemplate.query(query, FilmMapper::mapToFilm, count);
-        this.setAttributes(filmsSorted);
-        return filmsSorted;
-    }
+    /**
+     * Updates the rate in the same transaction as the like, or leaves it to the write-behind buffer when enabled.
+     * From the commit until the popularity index has applied the change, the index is not built, see
+     * {@link FilmPopularityIndex#beginRateChange()}.
+     */
+    private void changeRate(Integer filmId, int delta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            popularityIndex.beginRateChange();
+            try {
+                applyRateChange(filmId, delta);
+            } finally {
+                popularityIndex.endRateChange();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean begun;
 
-    @Override
-    public List<Film> searchFilm(String filter, List<SearchParam> params) {
-        String sqlQuery;
-        List<Film> films;
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                popularityIndex.beginRateChange();
+                begun = true;
+            }
 
-        if (params.size() == 1) {
-            switch (params.get(0)) {
-                case TITLE:
-                    sqlQuery = "SELECT f.*, mr.name as mpa_name " +
-                            "FROM films f " +
-                            "JOIN mpa_rating mr ON f.mpa_rate_id = mr.mpa_rate_id " +
-                            "WHERE LOWER(f.name) LIKE LOWER(?)" +
-                            "ORDER BY f.rate DESC";
-                    break;
-
-                case DIRECTOR:
-                    sqlQuery = "SELECT f.*, mr.name as mpa_name " +
-                            "FROM directors d " +
-                            "JOIN films_directors fd ON d.id = fd.director_id " +
-                            "JOIN films f ON fd.film_id = f.id " +
-                            "JOIN mpa_rating mr ON f.mpa_rate_id = mr.mpa_rate_id " +
-                            "WHERE LOWER(d.name) LIKE LOWER(?)" +
-                            "GROUP BY f.id " +
-                            "ORDER BY f.rate DESC";
-                    break;
-
-                default:
-                    throw new IllegalArgumentException("incorrect filter type");
+            @Override
+            public void afterCompletion(int status) {
+                if (begun) {
+                    popularityIndex.endRateChange();
+                }
             }
+        });
+        applyRateChange(filmId, delta);
+    }
 
-            films = jdbcTemplate.query(sqlQuery, FilmMapper::mapToFilm, "%" + filter + "%");
+    private void applyRateChange(Integer filmId, int delta) {
+        if (rateBuffer.isEnabled()) {
+            afterCommit(() -> rateBuffer.add(filmId, delta));
+        } else {
+            String updateFilmRate = "update films \n " +
+                    "set rate = rate + ? \n " +
+                    "where id = ?";
+            jdbcTemplate.update(updateFilmRate, delta, filmId);
+        }
+        afterCommit(() -> popularityIndex.changeRate(filmId, delta));
+    }
 
+    /**
+     * In-memory indexes must only see changes that were committed.
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
         } else {
-            sqlQuery = "SELECT f.*, mr.name as mpa_name " +
-                    "FROM directors d " +
-                    "JOIN films_directors fd ON d.id = fd.director_id " +
-                    "RIGHT JOIN films f ON fd.film_id = f.id " +
-                    "JOIN mpa_rating mr ON f.mpa_rate_id = mr.mpa_rate_id " +
-                    "WHERE LOWER(d.name) LIKE LOWER(?) OR LOWER(f.name) LIKE LOWER(?) " +
-                    "GROUP BY f.id " +
-                    "ORDER BY rate DESC";
-
-            films = jdbcTemplate.query(sqlQuery, FilmMapper::mapToFilm, "%" + filter + "%", "%" + filter + "%");
+            action.run();
         }
+    }
 
-        this.setAttributes(films);
+    @Override
+    public List<Film> getFilmsTop(Integer count, Integer genreId, Integer year) {
+        return getFilmsTop(count, genreId, year, View.FULL);
+    }
+
+    /**
+     * Reads the statement of {@link FilmQueries#top}. All values are bound, so the four shapes of the statement
+     * are parsed once per session.
+     */
+    @Override
+    public List<Film> getFilmsTop(Integer count, Integer genreId, Integer year, View view) {
+        List<Object> params = new ArrayList<>();
+        if (genreId != -1) {
+            params.add(genreId);
+        }
+        if (year != -1) {
+            params.add(year);
+        }
+        params.add(count);
+        String query = FilmQueries.top(genreId != -1, year != -1, name -> "?");
+
+        List<Film> filmsSorted = queryFilms(query, params.toArray());
+        this.setAttributes(filmsSorted, view);
+        return filmsSorted;
+    }
+
+    /**
+     * Finds matching ids in {@link FilmSearchIndex} and hydrates only those films, most rated first.
+     */
+    @Override
+    public List<Film> searchFilm(String filter, List<SearchParam> params) {
+        Set<Integer> ids = searchIndex.search(filter, params);
+        List<Film> films = getFilmsByIdList(new ArrayList<>(ids));
+        films.sort(Comparator.comparing(Film::getRate, Comparator.reverseOrder()).thenComparing(Film::getId));
 
         return films;
     }
 
+    /**
+     * Intersects the likes of both users in {@link FilmRecommendationEngine} and hydrates the common films,
+     * most rated first.
+     */
+    @Override
     public List<Film> getCommonFilms(Integer userId, Integer friendsId) {
-        String sqlQuery = "SELECT f.*, mr.name as mpa_name " +
-                "FROM films_likes fl " +
-                "JOIN films f ON fl.film_id = f.id " +
-                "JOIN mpa_rating mr ON f.mpa_rate_id = mr.mpa_rate_id " +
-                "WHERE fl.user_id = ? OR fl.user_id = ?" +
-                "GROUP BY fl.film_id " +
-                "HAVING COUNT(fl.film_id) > 1 " +
-                "ORDER BY f.rate DESC;";
-
-        List<Film> films = jdbcTemplate.query(sqlQuery, FilmMapper::mapToFilm, userId, friendsId);
-        this.setAttributes(films);
+        List<Integer> ids = new ArrayList<>();
+        for (int filmId : recommendationEngine.getCommonLikes(userId, friendsId)) {
+            ids.add(filmId);
+        }
+        List<Film> films = getFilmsByIdList(ids);
+        films.sort(Comparator.comparing(Film::getRate, Comparator.reverseOrder()).thenComparing(Film::getId));
 
         return films;
     }
 
     private void setAttributes(List<Film> films) {
-        Map<Integer, Film> filmMap = new HashMap<>();
-        films.forEach(film -> filmMap.put(film.getId(), film));
-
-        if (!filmMap.isEmpty()) {
-
-            String genres = "SELECT fg.film_id, g.* " +
-                    "FROM films_genres fg " +
-                    "LEFT JOIN genres g on fg.genre_id = g.genre_id " +
-                    "ORDER BY fg.FILM_ID, fg.GENRE_ID";
-
-            jdbcTemplate.query(genres, rs -> {
-                Genre genre = new Genre();
-                genre.setId(rs.getInt("genre_id"));
-                genre.setName(rs.getString("name"));
-                Optional.ofNullable(filmMap.get(rs.getInt("film_id")))
-                        .ifPresent(f -> f.getGenres().add(genre));
-            });
-
-            String directorsSql = "SELECT FD.FILM_ID, D.* " +
-                    "FROM FILMS_DIRECTORS FD " +
-                    "LEFT JOIN DIRECTORS D ON FD.DIRECTOR_ID = D.ID " +
-                    "ORDER BY FD.FILM_ID, FD.DIRECTOR_ID";
-
-            jdbcTemplate.query(directorsSql, rs -> {
-                Director director = new Director();
-                director.setId(rs.getInt("id"));
-                director.setName(rs.getString("name"));
-                Optional.ofNullable(filmMap.get(rs.getInt("film_id")))
-                        .ifPresent(f -> f.getDirectors().add(director));
-            });
+        setAttributes(films, View.FULL);
+    }
 
-            String likes = "SELECT * " +
-                    "FROM films_likes";
+    /**
+     * The summary view has no likes at all, so the films_likes table is left out of the attributes query.
+     */
+    private void setAttributes(List<Film> films, View view) {
+        boolean withLikes = view != View.SUMMARY;
+        Map<Integer, Film> filmMap = new LinkedHashMap<>();
+        films.forEach(film -> {
+            filmQueries.setMpaName(film);
+            if (!withLikes) {
+                film.setLikes(null);
+            }
+            filmMap.put(film.getId(), film);
+        });
 
-            jdbcTemplate.query(likes, rs -> {
-                Integer userId = rs.getInt("user_id");
-                Optional.ofNullable(filmMap.get(rs.getInt("film_id")))
-                        .ifPresent(f -> f.addLike(userId));
-            });
+        List<Integer> ids = new ArrayList<>(filmMap.keySet());
+        for (int from = 0; from < ids.size(); from += ID_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + ID_CHUNK_SIZE, ids.size()));
+            setAttributes(filmMap, chunk, withLikes);
         }
     }
 
+    /**
+     * Loads genres, directors and, if requested, likes of the given films in a single round trip
+     * by the attributes statement of {@link FilmQueries}.
+     */
+    private void setAttributes(Map<Integer, Film> filmMap, List<Integer> ids, boolean withLikes) {
+        String attributes = queryShapes.inList(withLikes ? "films.attributes" : "films.attributesWithoutLikes",
+                FilmQueries.attributes(withLikes), ids.size());
+        Object[] params = QueryShapeRegistry.padded(ids, withLikes ? 3 : 2);
+
+        jdbcTemplate.query(attributes, rs -> {
+            FilmMapper.addAttribute(filmMap.get(rs.getInt("film_id")), rs.getString("kind"), rs.getInt("id"),
+                    rs.getString("name"));
+        }, params);
+        //Names are looked up once the connection is released, a cache reload may need one
+        ids.forEach(id -> filmMap.get(id).getGenres().forEach(filmQueries::setGenreName));
+    }
+
     private void setAttributes(Film film) {
-        String genres = "SELECT fg.film_id, g.* " +
-                "FROM films_genres fg " +
-                "LEFT JOIN genres g on fg.genre_id = g.genre_id " +
-                "WHERE fg.FILM_ID = ?" +
-                "ORDER BY fg.FILM_ID, fg.GENRE_ID";
-
-        jdbcTemplate.query(genres, rs -> {
-            Genre genre = new Genre();
-            genre.setId(rs.getInt("genre_id"));
-            genre.setName(rs.getString("name"));
-            film.getGenres().add(genre);
-        }, film.getId());
-
-        String directorsSql = "SELECT FD.FILM_ID, D.* " +
-                "FROM FILMS_DIRECTORS FD " +
-                "LEFT JOIN DIRECTORS D ON FD.DIRECTOR_ID = D.ID " +
-                "WHERE FD.FILM_ID = ? " +
-                "ORDER BY FD.FILM_ID, FD.DIRECTOR_ID ";
-
-        jdbcTemplate.query(directorsSql, rs -> {
-            Director director = new Director();
-            director.setId(rs.getInt("id"));
-            director.setName(rs.getString("name"));
-            film.getDirectors().add(director);
-        }, film.getId());
-
-        String likes = "SELECT * " +
-                "FROM films_likes " +
-                "WHERE FILM_ID = ?";
+        this.setAttributes(List.of(film));
+    }
+
+    /**
+     * Rows of FILMS are read along with their pending rate change, under the guard of {@link FilmRateBuffer},
+     * so a concurrent flush can neither drop nor double the change.
+     */
+    private List<Film> queryFilms(String query, Object... params) {
+        return rateBuffer.read(() -> jdbcTemplate.query(query, this::mapToFilm, params));
+    }
+
+    private Film mapToFilm(ResultSet rs, int rowNum) throws SQLException {
+        Film film = FilmMapper.mapToFilm(rs, rowNum);
+        filmQueries.addPendingRate(film);
+        return film;
+    }
+
+    /**
+     * Forward-only cursor over rows ordered by film_id, read in step with the films cursor.
+     */
+    private static class OrderedCursor {
+        private final ResultSet rs;
+        private boolean hasRow;
 
-        jdbcTemplate.query(likes, rs -> {
-            film.addLike(rs.getInt("user_id"));
-        }, film.getId());
+        OrderedCursor(ResultSet rs) throws SQLException {
+            this.rs = rs;
+            this.hasRow = rs.next();
+        }
+
+        void drain(int filmId, RowCallbackHandler handler) throws SQLException {
+            while (hasRow && rs.getInt("film_id") <= filmId) {
+                if (rs.getInt("film_id") == filmId) {
+                    handler.processRow(rs);
+                }
+                hasRow = rs.next();
+            }
+        }
+    }
+
+    @Override
+    public boolean existsById(Integer id) {
+        return filmIds.exists(id);
     }
 
     private void isFilmExists(Integer id) {
-        String sqlQuery = "select count(*) from films where id = ?";
-        int result = jdbcTemplate.queryForObject(sqlQuery, Integer.class, id);
-        if (result != 1) {
+        if (!filmIds.exists(id)) {
             throw new NotFoundException("id", String
                     .format("film with id %d does not exists", id));
         }
@@ -395,23 +567,10 @@ public class FilmDbStorage implements FilmStorage {
         List<Film> films;
         switch (sortBy) {
             case "year":
-                String sqlQueryYear = "SELECT F.*, MR.NAME as MPA_NAME\n" +
-                        "FROM FILMS F\n" +
-                        "LEFT JOIN MPA_RATING MR on F.MPA_RATE_ID = MR.MPA_RATE_ID\n" +
-                        "LEFT JOIN FILMS_DIRECTORS FD on F.ID = FD.FILM_ID\n" +
-                        "WHERE FD.DIRECTOR_ID = ?\n" +
-                        "ORDER BY F.RELEASE_DATE ASC, F.ID";
-                films = jdbcTemplate.query(sqlQueryYear, FilmMapper::mapToFilm, directorId);
+                films = queryFilms(FilmQueries.FILMS_OF_DIRECTOR_BY_YEAR, directorId);
                 break;
             case "likes":
-                String sqlQueryLikes = "SELECT F.*, MR.NAME as MPA_NAME " +
-                        "FROM FILMS F " +
-                        "LEFT JOIN MPA_RATING MR on F.MPA_RATE_ID = MR.MPA_RATE_ID " +
-                        "LEFT JOIN FILMS_DIRECTORS FD on F.ID = FD.FILM_ID " +
-                        "WHERE FD.DIRECTOR_ID = ? " +
-                        "GROUP BY F.ID, MR.NAME " +
-                        "ORDER BY F.RATE DESC, F.ID";
-                films = jdbcTemplate.query(sqlQueryLikes, FilmMapper::mapToFilm, directorId);
+                films = queryFilms(FilmQueries.FILMS_OF_DIRECTOR_BY_LIKES, directorId);
                 break;
             default:
                 throw new IllegalArgumentException("Invalid request parameter");
@@ -424,28 +583,25 @@ public class FilmDbStorage implements FilmStorage {
     public List<Integer> getRecommendations(Integer[] usersWithSimilarInterests, Integer idRecommendedUser,
                                             Integer limit) {
 
-        String sql = "SELECT DISTINCT fl_1.film_id " +
-                "FROM films_likes AS fl_1 " +
-                "WHERE fl_1.user_id IN (?) " +
-                "EXCEPT " +
-                "SELECT fl_2.film_id " +
-                "FROM films_likes AS fl_2 " +
-                "WHERE fl_2.user_id = ? " +
-                "LIMIT ?";
-        return jdbcTemplate.queryForList(sql, Integer.class, usersWithSimilarInterests, idRecommendedUser, limit);
+        return jdbcTemplate.queryForList(FilmQueries.FILMS_LIKED_BY_USERS, Integer.class,
+                usersWithSimilarInterests, idRecommendedUser, limit);
 
     }
 
     @Override
     public List<Film> getFilmsByIdList(List<Integer> idList) {
-        String inClause = String.join(",", Collections.nCopies(idList.size(), "?"));
-        String query = String.format("SELECT f.*, mr.name as mpa_name " +
-                "FROM films f " +
-                "left join MPA_RATING MR on f.MPA_RATE_ID = MR.MPA_RATE_ID " +
-                "WHERE f.id in (%s)", inClause);
+        return getFilmsByIdList(idList, View.FULL);
+    }
 
-        List<Film> films = jdbcTemplate.query(query, FilmMapper::mapToFilm, idList.toArray());
-        this.setAttributes(films);
+    @Override
+    public List<Film> getFilmsByIdList(List<Integer> idList, View view) {
+        List<Film> films = new ArrayList<>();
+        for (int from = 0; from < idList.size(); from += ID_CHUNK_SIZE) {
+            List<Integer> chunk = idList.subList(from, Math.min(from + ID_CHUNK_SIZE, idList.size()));
+            String query = queryShapes.inList("films.byIds", FilmQueries.FILMS_BY_IDS, chunk.size());
+            films.addAll(queryFilms(query, QueryShapeRegistry.padded(chunk, 1)));
+        }
+        this.setAttributes(films, view);
 
         return films;
     }
@@ -0,0 +1,246 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.JdbcRoundTrips;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory ranking of films by rate, kept for every genre, release year and genre and year pair.
+ * Answers top-N requests without a database round trip. The index is built from the database on first use
+ * and then kept up to date by {@link FilmDbStorage} on every film and like change.
+ * <p>
+ * Changes that arrive while the index is built wait for it and are applied afterwards. Film changes replace
+ * whole entries, so one the build has already read is applied again to the same effect. A rate change is
+ * a delta, so the build and the commit of rate changes exclude each other, see {@link #beginRateChange()}.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class FilmPopularityIndex {
+    public static final int ANY = -1;
+    private static final Comparator<Ranked> BY_RATE = Comparator.comparingInt((Ranked r) -> r.rate).reversed()
+            .thenComparingInt(r -> r.filmId);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmRateBuffer rateBuffer;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReadWriteLock rateChanges = new ReentrantReadWriteLock();
+    private final Map<Integer, Ranked> films = new HashMap<>();
+    private final Map<Long, NavigableSet<Ranked>> rankings = new HashMap<>();
+    private volatile boolean loaded;
+
+    /**
+     * Returns ids of the most rated films, ordered by rate descending and then by id.
+     * Pass {@link #ANY} as genreId or year to skip that filter.
+     */
+    public List<Integer> getTop(int count, int genreId, int year) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            NavigableSet<Ranked> ranking = rankings.get(key(genreId, year));
+            if (ranking == null) {
+                return new ArrayList<>();
+            }
+            return ranking.stream()
+                    .limit(count)
+                    .map(r -> r.filmId)
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a created film or re-indexes an updated one. The rate of an already indexed film is kept,
+     * since it only changes through likes.
+     */
+    public void put(Film film) {
+        int[] genreIds = film.getGenres().stream().mapToInt(Genre::getId).toArray();
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            Ranked old = films.get(film.getId());
+            int rate = old != null ? old.rate : Optional.ofNullable(film.getRate()).orElse(0);
+            replace(old, new Ranked(film.getId(), rate, film.getReleaseDate().getYear(), genreIds));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int filmId) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            replace(films.get(filmId), null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void changeRate(int filmId, int delta) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            Ranked old = films.get(filmId);
+            if (old != null) {
+                replace(old, new Ranked(filmId, old.rate + delta, old.year, old.genreIds));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Called before a rate change commits, and {@link #endRateChange()} once it is applied by
+     * {@link #changeRate(int, int)}, or rolled back. The build of the index does not read rates in between,
+     * so it either sees the change in the database, then the index was not loaded when the change was applied,
+     * or the change is applied to the built index.
+     */
+    public void beginRateChange() {
+        rateChanges.readLock().lock();
+    }
+
+    public void endRateChange() {
+        rateChanges.readLock().unlock();
+    }
+
+    /**
+     * Startup consistency check: the index ranks films by FILMS.RATE, so rates that drifted away
+     * from the real number of likes are recalculated before the index is built.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void repairRates() {
+        String query = "UPDATE films f " +
+                "SET rate = (SELECT COUNT(*) FROM films_likes fl WHERE fl.film_id = f.id) " +
+                "WHERE rate <> (SELECT COUNT(*) FROM films_likes fl WHERE fl.film_id = f.id)";
+        int repaired = jdbcTemplate.update(query);
+        if (repaired > 0) {
+            log.warn("rate of {} films did not match their likes count and was recalculated", repaired);
+        }
+    }
+
+    /**
+     * Reads the films over a connection taken before the locks, so that rate changes waiting in
+     * {@link #beginRateChange()} with their connections held can not leave the build without one.
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        JdbcRoundTrips.warmUp(() -> jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            rateChanges.writeLock().lock();
+            lock.writeLock().lock();
+            try {
+                if (!loaded) {
+                    load(connection);
+                }
+            } finally {
+                lock.writeLock().unlock();
+                rateChanges.writeLock().unlock();
+            }
+            return null;
+        }));
+    }
+
+    private void load(Connection connection) throws SQLException {
+        Map<Integer, List<Integer>> genres = new HashMap<>();
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT film_id, genre_id FROM films_genres");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                genres.computeIfAbsent(rs.getInt("film_id"), id -> new ArrayList<>()).add(rs.getInt("genre_id"));
+            }
+        }
+        List<Ranked> ranked = rateBuffer.read(() -> readRanked(connection, genres));
+        ranked.forEach(r -> replace(null, r));
+        loaded = true;
+        log.info("popularity index built for {} films", films.size());
+    }
+
+    private List<Ranked> readRanked(Connection connection, Map<Integer, List<Integer>> genres) {
+        String query = "SELECT id, rate, release_year FROM films";
+        List<Ranked> ranked = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement(query);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                int id = rs.getInt("id");
+                int rate = rs.getInt("rate") + rateBuffer.getPendingDelta(id);
+                int[] genreIds = genres.getOrDefault(id, List.of()).stream()
+                        .mapToInt(Integer::intValue).toArray();
+                ranked.add(new Ranked(id, rate, rs.getInt("release_year"), genreIds));
+            }
+        } catch (SQLException e) {
+            throw jdbcTemplate.getExceptionTranslator().translate("popularity index", query, e);
+        }
+        return ranked;
+    }
+
+    private void replace(Ranked old, Ranked current) {
+        if (old != null) {
+            films.remove(old.filmId);
+            for (long key : keys(old)) {
+                NavigableSet<Ranked> ranking = rankings.get(key);
+                ranking.remove(old);
+                if (ranking.isEmpty()) {
+                    rankings.remove(key);
+                }
+            }
+        }
+        if (current != null) {
+            films.put(current.filmId, current);
+            for (long key : keys(current)) {
+                rankings.computeIfAbsent(key, k -> new TreeSet<>(BY_RATE)).add(current);
+            }
+        }
+    }
+
+    private static long[] keys(Ranked ranked) {
+        long[] keys = new long[2 + ranked.genreIds.length * 2];
+        keys[0] = key(ANY, ANY);
+        keys[1] = key(ANY, ranked.year);
+        for (int i = 0; i < ranked.genreIds.length; i++) {
+            keys[2 + i * 2] = key(ranked.genreIds[i], ANY);
+            keys[3 + i * 2] = key(ranked.genreIds[i], ranked.year);
+        }
+        return keys;
+    }
+
+    private static long key(int genreId, int year) {
+        return ((long) genreId << 32) | (year & 0xFFFFFFFFL);
+    }
+
+    private static class Ranked {
+        private final int filmId;
+        private final int rate;
+        private final int year;
+        private final int[] genreIds;
+
+        Ranked(int filmId, int rate, int year, int[] genreIds) {
+            this.filmId = filmId;
+            this.rate = rate;
+            this.year = year;
+            this.genreIds = genreIds;
+        }
+    }
+}
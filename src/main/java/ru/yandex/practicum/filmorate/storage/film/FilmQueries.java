@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaCategory;
+import ru.yandex.practicum.filmorate.storage.DictionaryCache;
+import ru.yandex.practicum.filmorate.storage.QueryShapeRegistry;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * Statements of the film storages and the row hydration shared by {@link FilmDbStorage} and
+ * {@link FilmR2dbcStorage}. The shared statements are built for the markers of the bound values each driver
+ * expects: {@code ?} over JDBC, named parameters over R2DBC. The rest are sent over JDBC only.
+ * <p>
+ * Genre and mpa names come from the reference data caches instead of joins in every film query. A cache reload
+ * reads the database over JDBC, so the reactive storage names films off the event loop.
+ */
+@Component
+@RequiredArgsConstructor
+public class FilmQueries {
+    private static final String GENRES_AND_DIRECTORS =
+            "SELECT 'G' AS kind, fg.film_id, fg.genre_id AS id, NULL AS name " +
+            "FROM films_genres fg " +
+            "WHERE fg.film_id IN (%1$s) " +
+            "UNION ALL " +
+            "SELECT 'D' AS kind, fd.film_id, d.id, d.name " +
+            "FROM films_directors fd " +
+            "JOIN directors d ON fd.director_id = d.id " +
+            "WHERE fd.film_id IN (%1$s) ";
+    private static final String LIKES =
+            "UNION ALL " +
+            "SELECT 'L' AS kind, fl.film_id, fl.user_id AS id, NULL AS name " +
+            "FROM films_likes fl " +
+            "WHERE fl.film_id IN (%1$s)";
+
+    public static final String FILM_BY_ID = "select f.* \n" +
+            " from FILMS f \n" +
+            " where id = ?";
+    public static final String FILMS_PAGE = "SELECT f.* " +
+            "FROM films f " +
+            "WHERE f.id > ? " +
+            "ORDER BY f.id " +
+            "LIMIT ?";
+    /**
+     * Template of {@link QueryShapeRegistry#inList}, the ids replace %s.
+     */
+    public static final String FILMS_BY_IDS = "SELECT f.* " +
+            "FROM films f " +
+            "WHERE f.id in (%s)";
+    public static final String ADD_LIKE = "INSERT INTO films_likes(film_id, user_id) " +
+            "SELECT id, ? FROM films WHERE id = ? " +
+            "AND NOT EXISTS (SELECT 1 FROM films_likes WHERE film_id = ? AND user_id = ?)";
+    public static final String FILMS_OF_DIRECTOR_BY_YEAR = "SELECT F.*\n" +
+            "FROM FILMS F\n" +
+            "JOIN FILMS_DIRECTORS FD on F.ID = FD.FILM_ID\n" +
+            "WHERE FD.DIRECTOR_ID = ?\n" +
+            "ORDER BY F.RELEASE_DATE ASC, F.ID";
+    public static final String FILMS_OF_DIRECTOR_BY_LIKES = "SELECT F.* " +
+            "FROM FILMS F " +
+            "JOIN FILMS_DIRECTORS FD on F.ID = FD.FILM_ID " +
+            "WHERE FD.DIRECTOR_ID = ? " +
+            "ORDER BY F.RATE DESC, F.ID";
+    public static final String FILMS_LIKED_BY_USERS = "SELECT DISTINCT fl_1.film_id " +
+            "FROM films_likes AS fl_1 " +
+            "WHERE fl_1.user_id IN (?) " +
+            "EXCEPT " +
+            "SELECT fl_2.film_id " +
+            "FROM films_likes AS fl_2 " +
+            "WHERE fl_2.user_id = ? " +
+            "LIMIT ?";
+
+    /**
+     * Genres, directors and likes of the films whose ids replace every %1$s, in a single round trip.
+     * Rows of the tables are merged with UNION ALL and told apart by the 'kind' column.
+     */
+    public static final String ATTRIBUTES = GENRES_AND_DIRECTORS + LIKES;
+    /**
+     * The attributes statement for the summary view, which has no likes at all.
+     */
+    public static final String ATTRIBUTES_WITHOUT_LIKES = GENRES_AND_DIRECTORS;
+
+    private final FilmRateBuffer rateBuffer;
+    private final DictionaryCache<Genre> genreCache;
+    private final DictionaryCache<MpaCategory> mpaCache;
+
+    public static String attributes(boolean withLikes) {
+        return withLikes ? ATTRIBUTES : ATTRIBUTES_WITHOUT_LIKES;
+    }
+
+    /**
+     * Reads the rate-ordered index of the year, or of all films, up to count films. The marker function
+     * maps the names genreId, year and count to the markers of their bound values.
+     */
+    public static String top(boolean byGenre, boolean byYear, UnaryOperator<String> marker) {
+        StringBuilder query = new StringBuilder("SELECT f.* FROM films f ");
+        if (byGenre) {
+            query.append("JOIN films_genres fg ON f.id = fg.film_id AND fg.genre_id = ")
+                    .append(marker.apply("genreId")).append(' ');
+        }
+        if (byYear) {
+            query.append("WHERE f.release_year = ").append(marker.apply("year")).append(' ');
+        }
+        query.append("ORDER BY f.rate DESC, f.id LIMIT ").append(marker.apply("count"));
+        return query.toString();
+    }
+
+    /**
+     * Adds the rate change still pending in {@link FilmRateBuffer} to a film read from FILMS.
+     * The row must be read under the guard of the buffer.
+     */
+    void addPendingRate(Film film) {
+        if (rateBuffer.isEnabled()) {
+            film.setRate(film.getRate() + rateBuffer.getPendingDelta(film.getId()));
+        }
+    }
+
+    Genre toGenre(int genreId) {
+        Genre genre = new Genre();
+        genre.setId(genreId);
+        setGenreName(genre);
+        return genre;
+    }
+
+    void setGenreName(Genre genre) {
+        genreCache.find(genre.getId()).ifPresent(cached -> genre.setName(cached.getName()));
+    }
+
+    void setMpaName(Film film) {
+        mpaCache.find(film.getMpa().getId())
+                .ifPresent(mpa -> film.getMpa().setName(mpa.getName()));
+    }
+}
@@ -0,0 +1,168 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import io.r2dbc.spi.Row;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.mappers.FilmMapper;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.enums.SearchParam;
+import ru.yandex.practicum.filmorate.model.enums.View;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Non-blocking film reads over R2DBC for the {@code reactive} profile. Films are emitted a chunk at a time,
+ * each chunk hydrated with its genres, directors and likes by the attributes statement of {@link FilmQueries},
+ * and the catalog is walked by id, the next chunk read only once the subscriber asks for more. Every statement
+ * returns its connection before the next one is sent, so a stream never holds two, nor one while its client
+ * reads slowly.
+ * <p>
+ * Rows are mapped by {@link FilmMapper}, mpa and genre names come from the reference caches and the ids
+ * of found films from {@link FilmSearchIndex}, as for the blocking storage. The caches and the index may block,
+ * so they are read on the bounded elastic scheduler.
+ */
+@Component
+@Profile("reactive")
+@RequiredArgsConstructor
+public class FilmR2dbcStorage {
+    private static final int CHUNK_SIZE = 256;
+    private final DatabaseClient databaseClient;
+    private final FilmRateBuffer rateBuffer;
+    private final FilmSearchIndex searchIndex;
+    private final FilmQueries filmQueries;
+
+    public Flux<Film> getAll(View view) {
+        return getChunk(0, view)
+                .expand(chunk -> chunk.size() < CHUNK_SIZE
+                        ? Mono.empty()
+                        : getChunk(chunk.get(chunk.size() - 1).getId(), view))
+                .flatMapIterable(chunk -> chunk);
+    }
+
+    public Mono<Film> findById(int id) {
+        return queryFilms(databaseClient.sql("SELECT f.* FROM films f WHERE f.id = :id").bind("id", id))
+                .filter(films -> !films.isEmpty())
+                .flatMap(films -> setAttributes(films, View.FULL))
+                .map(films -> films.get(0))
+                .switchIfEmpty(Mono.error(() ->
+                        new NotFoundException("id", String.format("film with id %d not found", id))));
+    }
+
+    /**
+     * Emits the films in no particular order, films that do not exist are left out.
+     */
+    public Flux<Film> getFilmsByIdList(List<Integer> idList, View view) {
+        return Flux.fromIterable(chunks(idList))
+                .concatMap(chunk -> queryFilms(databaseClient.sql("SELECT f.* FROM films f WHERE f.id IN (:ids)")
+                        .bind("ids", chunk))
+                        .flatMap(films -> setAttributes(films, view)))
+                .flatMapIterable(films -> films);
+    }
+
+    /**
+     * Reads the statement of {@link FilmQueries#top}, as {@link FilmDbStorage#getFilmsTop} does.
+     * The films are hydrated once the ranking statement has returned its connection.
+     */
+    public Flux<Film> getFilmsTop(int count, int genreId, int year, View view) {
+        String query = FilmQueries.top(genreId != -1, year != -1, name -> ":" + name);
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(query).bind("count", count);
+        if (genreId != -1) {
+            spec = spec.bind("genreId", genreId);
+        }
+        if (year != -1) {
+            spec = spec.bind("year", year);
+        }
+        return queryFilms(spec)
+                .flatMapMany(films -> Flux.fromIterable(chunks(films))
+                        .concatMap(chunk -> setAttributes(chunk, view)))
+                .flatMapIterable(films -> films);
+    }
+
+    /**
+     * Finds matching ids in {@link FilmSearchIndex} and emits those films, most rated first.
+     */
+    public Flux<Film> searchFilm(String filter, List<SearchParam> params) {
+        return Mono.fromCallable(() -> new ArrayList<>(searchIndex.search(filter, params)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(ids -> getFilmsByIdList(ids, View.FULL))
+                .sort(Comparator.comparing(Film::getRate, Comparator.reverseOrder()).thenComparing(Film::getId));
+    }
+
+    private Mono<List<Film>> getChunk(int afterId, View view) {
+        String query = "SELECT f.* FROM films f WHERE f.id > :afterId ORDER BY f.id LIMIT :limit";
+        return queryFilms(databaseClient.sql(query).bind("afterId", afterId).bind("limit", CHUNK_SIZE))
+                .flatMap(films -> setAttributes(films, view));
+    }
+
+    /**
+     * Rows of FILMS are read along with their pending rate change, under the guard of {@link FilmRateBuffer},
+     * as in {@link FilmDbStorage}.
+     */
+    private Mono<List<Film>> queryFilms(DatabaseClient.GenericExecuteSpec spec) {
+        return rateBuffer.read(spec.map((row, metadata) -> mapRowToFilm(row))
+                .all()
+                .collectList());
+    }
+
+    private Film mapRowToFilm(Row row) {
+        Film film = FilmMapper.mapRowToFilm(row);
+        filmQueries.addPendingRate(film);
+        return film;
+    }
+
+    /**
+     * Loads genres, directors and, unless the view is a summary, likes of up to {@link #CHUNK_SIZE} films
+     * in a single statement. Mpa and genre names are set once it has returned its connection.
+     */
+    private Mono<List<Film>> setAttributes(List<Film> films, View view) {
+        if (films.isEmpty()) {
+            return Mono.just(films);
+        }
+        boolean withLikes = view != View.SUMMARY;
+        Map<Integer, Film> filmMap = new LinkedHashMap<>();
+        films.forEach(film -> {
+            if (!withLikes) {
+                film.setLikes(null);
+            }
+            filmMap.put(film.getId(), film);
+        });
+
+        return databaseClient.sql(String.format(FilmQueries.attributes(withLikes), ":ids"))
+                .bind("ids", new ArrayList<>(filmMap.keySet()))
+                .map((row, metadata) -> addAttribute(filmMap, row))
+                .all()
+                .then(Mono.fromCallable(() -> {
+                    films.forEach(film -> {
+                        filmQueries.setMpaName(film);
+                        film.getGenres().forEach(filmQueries::setGenreName);
+                    });
+                    return films;
+                }).subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    private static Film addAttribute(Map<Integer, Film> filmMap, Row row) {
+        Film film = filmMap.get(row.get("film_id", Integer.class));
+        FilmMapper.addAttribute(film, row.get("kind", String.class), row.get("id", Integer.class),
+                row.get("name", String.class));
+        return film;
+    }
+
+    private static <T> List<List<T>> chunks(List<T> list) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += CHUNK_SIZE) {
+            chunks.add(list.subList(from, Math.min(from + CHUNK_SIZE, list.size())));
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,178 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * Write-behind buffer for FILMS.RATE. When enabled, like and unlike only record a per-film delta in memory,
+ * and the deltas are written with one JDBC batch on a fixed interval or once enough of them pile up.
+ * This takes the hot-row UPDATE off the like path of popular films. Likes themselves are still written
+ * synchronously by {@link FilmDbStorage}.
+ * <p>
+ * A flush takes the deltas out of the buffer before its batch update commits, so a rate read from the database
+ * plus {@link #getPendingDelta(int)} is the real rate only if no flush overlaps both reads. Readers run them
+ * through {@link #read(Supplier)}, which guards against flushes with a {@link StampedLock}.
+ */
+@Component
+@Slf4j
+public class FilmRateBuffer {
+    private static final Duration RETRY_DELAY = Duration.ofMillis(10);
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final long flushThreshold;
+    private final Map<Integer, Long> pending = new ConcurrentHashMap<>();
+    private final AtomicLong pendingCount = new AtomicLong();
+    private final StampedLock flushLock = new StampedLock();
+
+    public FilmRateBuffer(JdbcTemplate jdbcTemplate,
+                          @Value("${filmorate.likes.write-behind.enabled:false}") boolean enabled,
+                          @Value("${filmorate.likes.write-behind.flush-threshold:1000}") long flushThreshold) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.flushThreshold = flushThreshold;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void add(int filmId, int delta) {
+        merge(filmId, delta);
+        if (pendingCount.incrementAndGet() >= flushThreshold) {
+            flush();
+        }
+    }
+
+    /**
+     * Rate change of the film that is not written to the database yet.
+     */
+    public int getPendingDelta(int filmId) {
+        Long delta = pending.get(filmId);
+        return delta == null ? 0 : delta.intValue();
+    }
+
+    /**
+     * Rate changes of all films that are not written to the database yet, for a reader that adds them
+     * to rows it reads later.
+     */
+    public Map<Integer, Integer> getPendingDeltas() {
+        Map<Integer, Integer> deltas = new HashMap<>();
+        pending.forEach((filmId, delta) -> deltas.put(filmId, delta.intValue()));
+        return deltas;
+    }
+
+    /**
+     * The connection is taken before the write lock, since readers may hold pooled connections while they wait
+     * for the lock, as in {@link FilmPopularityIndex}. Taking it under the lock would leave the flush and those
+     * readers waiting on each other until the pool timed out.
+     */
+    @Scheduled(fixedDelayString = "${filmorate.likes.write-behind.flush-interval:1000}")
+    @PreDestroy
+    public synchronized void flush() {
+        if (pendingCount.getAndSet(0) == 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.execute((ConnectionCallback<Void>) this::flush);
+        } catch (RuntimeException e) {
+            pendingCount.addAndGet(pending.size());
+            log.error("rate deltas flush failed, {} films will be retried", pending.size(), e);
+        }
+    }
+
+    private Void flush(Connection connection) {
+        long stamp = flushLock.writeLock();
+        try {
+            Map<Integer, Long> batch = new HashMap<>();
+            for (Integer filmId : pending.keySet()) {
+                Long delta = pending.remove(filmId);
+                if (delta != null) {
+                    batch.put(filmId, delta);
+                }
+            }
+            if (batch.isEmpty()) {
+                return null;
+            }
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "update films set rate = rate + ? where id = ?")) {
+                for (Map.Entry<Integer, Long> delta : batch.entrySet()) {
+                    stmt.setLong(1, delta.getValue());
+                    stmt.setInt(2, delta.getKey());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                log.info("rate deltas of {} films flushed", batch.size());
+            } catch (SQLException e) {
+                batch.forEach(this::merge);
+                pendingCount.addAndGet(batch.size());
+                log.error("rate deltas flush failed, {} films will be retried", batch.size(), e);
+            }
+            return null;
+        } finally {
+            flushLock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Runs the reader, which reads rates from the database and adds {@link #getPendingDelta(int)}
+     * or {@link #getPendingDeltas()} to them, so that no flush overlaps it. The reader runs optimistically
+     * first and once more under the read lock if a flush has started meanwhile, so it must be free
+     * of side effects.
+     */
+    public <T> T read(Supplier<T> reader) {
+        if (!enabled) {
+            return reader.get();
+        }
+        long stamp = flushLock.tryOptimisticRead();
+        if (stamp != 0) {
+            T result = reader.get();
+            if (flushLock.validate(stamp)) {
+                return result;
+            }
+        }
+        stamp = flushLock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            flushLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Non-blocking version of {@link #read(Supplier)}. The reader is subscribed again, after a short delay,
+     * until no flush has overlapped it. It must emit a value, an empty reader is subscribed forever.
+     */
+    public <T> Mono<T> read(Mono<T> reader) {
+        if (!enabled) {
+            return reader;
+        }
+        return Mono.defer(() -> {
+            long stamp = flushLock.tryOptimisticRead();
+            return reader.filter(result -> stamp != 0 && flushLock.validate(stamp));
+        }).repeatWhenEmpty(attempts -> attempts.delayElements(RETRY_DELAY));
+    }
+
+    /**
+     * Adds the delta, an entry whose deltas add up to zero is removed.
+     */
+    private void merge(int filmId, long delta) {
+        pending.merge(filmId, delta, (sum, value) -> sum + value == 0 ? null : sum + value);
+    }
+}
@@ -0,0 +1,284 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.JdbcRoundTrips;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+
+/**
+ * Collaborative filtering over likes. Keeps the films liked by every user and the users who liked every film
+ * as compressed bitmaps, finds the users most similar to the given one by Jaccard similarity of their likes
+ * and recommends the films those neighbours liked, scored by the sum of the neighbours' similarities.
+ * <p>
+ * The bitmaps are built from the database on first use and then kept up to date by {@link FilmDbStorage}
+ * on every like change and by the user storage on user removal.
+ */
+@Component
+@Slf4j
+public class FilmRecommendationEngine {
+    private static final Comparator<Neighbour> BY_SIMILARITY = Comparator.comparingDouble((Neighbour n) -> n.similarity)
+            .thenComparing(n -> -n.userId);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int neighbours;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, RoaringBitmap> filmsByUser = new HashMap<>();
+    private final Map<Integer, RoaringBitmap> usersByFilm = new HashMap<>();
+    private volatile boolean loaded;
+
+    public FilmRecommendationEngine(JdbcTemplate jdbcTemplate,
+                                    @Value("${filmorate.recommendations.neighbours:50}") int neighbours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.neighbours = neighbours;
+    }
+
+    /**
+     * Returns ids of films recommended to the user, best scored first. Films the user already liked
+     * are never recommended.
+     */
+    public List<Integer> recommend(int userId, int limit) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            RoaringBitmap liked = filmsByUser.get(userId);
+            if (liked == null || liked.isEmpty()) {
+                return new ArrayList<>();
+            }
+            Map<Integer, Double> scores = new HashMap<>();
+            for (Neighbour neighbour : findNeighbours(userId, liked)) {
+                RoaringBitmap.andNot(filmsByUser.get(neighbour.userId), liked)
+                        .forEach((int filmId) -> scores.merge(filmId, neighbour.similarity, Double::sum));
+            }
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .limit(limit)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns ids of the films liked by both users, in ascending order.
+     */
+    public int[] getCommonLikes(int userId, int otherId) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            RoaringBitmap liked = filmsByUser.get(userId);
+            RoaringBitmap otherLiked = filmsByUser.get(otherId);
+            if (liked == null || otherLiked == null) {
+                return new int[0];
+            }
+            return RoaringBitmap.and(liked, otherLiked).toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns ids of the other users who liked at least one of the films the user liked, in ascending order.
+     */
+    public int[] getUsersSharingLikes(int userId) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            RoaringBitmap liked = filmsByUser.get(userId);
+            if (liked == null) {
+                return new int[0];
+            }
+            RoaringBitmap users = new RoaringBitmap();
+            liked.forEach((int filmId) -> users.or(usersByFilm.get(filmId)));
+            users.remove(userId);
+            return users.toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean hasLiked(int userId, int filmId) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            RoaringBitmap liked = filmsByUser.get(userId);
+            return liked != null && liked.contains(filmId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Tells whether the user liked a film matching the predicate, stopping at the first one.
+     */
+    public boolean anyLiked(int userId, IntPredicate predicate) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            RoaringBitmap liked = filmsByUser.get(userId);
+            if (liked == null) {
+                return false;
+            }
+            IntIterator films = liked.getIntIterator();
+            while (films.hasNext()) {
+                if (predicate.test(films.next())) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void like(int filmId, int userId) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            filmsByUser.computeIfAbsent(userId, id -> new RoaringBitmap()).add(filmId);
+            usersByFilm.computeIfAbsent(filmId, id -> new RoaringBitmap()).add(userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void unlike(int filmId, int userId) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            remove(filmsByUser, userId, filmId);
+            remove(usersByFilm, filmId, userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(int filmId) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            RoaringBitmap users = usersByFilm.remove(filmId);
+            if (users != null) {
+                users.forEach((int userId) -> remove(filmsByUser, userId, filmId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeUser(int userId) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            RoaringBitmap films = filmsByUser.remove(userId);
+            if (films != null) {
+                films.forEach((int filmId) -> remove(usersByFilm, filmId, userId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Top neighbours by Jaccard similarity among the users sharing at least one like with the given one
+     * and having liked something the user has not. Candidates are checked by the number of shared likes,
+     * descending. Since the similarity can not exceed shared / liked, the search stops as soon as that bound
+     * falls below the weakest neighbour kept.
+     */
+    private List<Neighbour> findNeighbours(int userId, RoaringBitmap liked) {
+        Map<Integer, Integer> shared = new HashMap<>();
+        liked.forEach((int filmId) -> usersByFilm.get(filmId)
+                .forEach((int otherId) -> shared.merge(otherId, 1, Integer::sum)));
+        shared.remove(userId);
+
+        List<Map.Entry<Integer, Integer>> candidates = new ArrayList<>(shared.entrySet());
+        candidates.sort(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+
+        int likedCount = liked.getCardinality();
+        PriorityQueue<Neighbour> best = new PriorityQueue<>(BY_SIMILARITY);
+        for (Map.Entry<Integer, Integer> candidate : candidates) {
+            int common = candidate.getValue();
+            if (best.size() == neighbours && (double) common / likedCount < best.peek().similarity) {
+                break;
+            }
+            RoaringBitmap other = filmsByUser.get(candidate.getKey());
+            int otherCount = other.getCardinality();
+            if (otherCount == common) {
+                continue;
+            }
+            Neighbour neighbour = new Neighbour(candidate.getKey(),
+                    (double) common / (likedCount + otherCount - common));
+            if (best.size() < neighbours) {
+                best.add(neighbour);
+            } else if (BY_SIMILARITY.compare(neighbour, best.peek()) > 0) {
+                best.poll();
+                best.add(neighbour);
+            }
+        }
+        return new ArrayList<>(best);
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            JdbcRoundTrips.warmUp(() -> jdbcTemplate.query(
+                    "SELECT user_id, film_id FROM films_likes ORDER BY user_id, film_id", rs -> {
+                        int userId = rs.getInt("user_id");
+                        int filmId = rs.getInt("film_id");
+                        filmsByUser.computeIfAbsent(userId, id -> new RoaringBitmap()).add(filmId);
+                        usersByFilm.computeIfAbsent(filmId, id -> new RoaringBitmap()).add(userId);
+                    }));
+            filmsByUser.values().forEach(RoaringBitmap::runOptimize);
+            usersByFilm.values().forEach(RoaringBitmap::runOptimize);
+            loaded = true;
+            log.info("recommendation bitmaps built for {} users and {} films", filmsByUser.size(), usersByFilm.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void remove(Map<Integer, RoaringBitmap> bitmaps, int key, int value) {
+        RoaringBitmap bitmap = bitmaps.get(key);
+        if (bitmap != null) {
+            bitmap.remove(value);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(key);
+            }
+        }
+    }
+
+    private static class Neighbour {
+        private final int userId;
+        private final double similarity;
+
+        Neighbour(int userId, double similarity) {
+            this.userId = userId;
+            this.similarity = similarity;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Precomputed recommendations. The first request of a user computes the top films with
+ * {@link FilmRecommendationEngine} and stores them, later requests are served from the store.
+ * <p>
+ * A like change only stamps the film and the user with a new version. A stored list is stale once its user
+ * or any film the user likes got a version newer than the list, since the neighbourhood of the user
+ * may have changed. The other likes of the user who changed a like are neighbours too: on the next refresh
+ * every user sharing a like with them is stamped with the version of the change, as their lists may now gain
+ * or lose the films of that user. Staleness is checked when the list is read: a stale list is still served
+ * and its user is recomputed in the background on a fixed delay by a pool of workers, so a stored list may lag
+ * behind likes by up to one refresh interval. Films the user liked in the meantime are filtered out when
+ * the list is served.
+ */
+@Component
+@Slf4j
+public class FilmRecommendationSnapshots {
+    private final FilmRecommendationEngine engine;
+    private final boolean enabled;
+    private final int size;
+    private final ExecutorService workers;
+    private final Map<Integer, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+    private final AtomicLong clock = new AtomicLong();
+    private final Map<Integer, Long> filmVersions = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> userVersions = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> changedLikers = new ConcurrentHashMap<>();
+
+    public FilmRecommendationSnapshots(FilmRecommendationEngine engine,
+                                       @Value("${filmorate.recommendations.snapshot.enabled:true}") boolean enabled,
+                                       @Value("${filmorate.recommendations.snapshot.size:50}") int size,
+                                       @Value("${filmorate.recommendations.snapshot.pool-size:2}") int poolSize) {
+        this.engine = engine;
+        this.enabled = enabled;
+        this.size = size;
+        this.workers = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "recommendation-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns up to limit recommended film ids, best scored first.
+     */
+    public List<Integer> get(int userId, int limit) {
+        if (!enabled || limit > size) {
+            return engine.recommend(userId, limit);
+        }
+        Snapshot snapshot = snapshots.get(userId);
+        if (snapshot == null) {
+            //Computed outside of the map, so a slow computation does not block other users of its bin
+            snapshot = compute(userId);
+            snapshots.merge(userId, snapshot, Snapshot::newer);
+        } else if (isStale(userId, snapshot)) {
+            dirty.add(userId);
+        }
+        List<Integer> ids = new ArrayList<>(Math.min(limit, snapshot.filmIds.length));
+        for (int filmId : snapshot.filmIds) {
+            if (ids.size() == limit) {
+                break;
+            }
+            if (!engine.hasLiked(userId, filmId)) {
+                ids.add(filmId);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Stamps the film and the user who liked or unliked it with a new version, which makes the stored lists
+     * of the user and of the other users who liked the film stale. The users sharing other likes with the user
+     * are stamped on the next refresh.
+     */
+    public void likeChanged(int filmId, int userId) {
+        if (!enabled) {
+            return;
+        }
+        long version = clock.incrementAndGet();
+        filmVersions.put(filmId, version);
+        userVersions.merge(userId, version, Math::max);
+        changedLikers.merge(userId, version, Math::max);
+    }
+
+    public void removeUser(int userId) {
+        snapshots.remove(userId);
+        dirty.remove(userId);
+        userVersions.remove(userId);
+        changedLikers.remove(userId);
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.recommendations.snapshot.refresh-interval:5000}")
+    public void refresh() {
+        stampNeighboursOfChangedLikers();
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<Integer> users = new ArrayList<>(dirty);
+        dirty.removeAll(users);
+        List<Callable<Void>> tasks = users.stream()
+                .<Callable<Void>>map(userId -> () -> {
+                    Snapshot fresh = compute(userId);
+                    snapshots.computeIfPresent(userId, (id, old) -> old.newer(fresh));
+                    return null;
+                })
+                .collect(Collectors.toList());
+        try {
+            for (Future<Void> result : workers.invokeAll(tasks)) {
+                result.get();
+            }
+            log.info("recommendations of {} users refreshed", users.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            dirty.addAll(users);
+            log.error("recommendations refresh failed, {} users will be retried", users.size(), e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Stamps the users sharing a like with a user who changed likes, and marks those with a stored list
+     * for recomputation. A list stored after the stamp but computed before the change is found stale when read.
+     */
+    private void stampNeighboursOfChangedLikers() {
+        for (Integer likerId : new ArrayList<>(changedLikers.keySet())) {
+            Long version = changedLikers.remove(likerId);
+            if (version == null) {
+                continue;
+            }
+            for (int neighbourId : engine.getUsersSharingLikes(likerId)) {
+                userVersions.merge(neighbourId, version, Math::max);
+                if (snapshots.containsKey(neighbourId)) {
+                    dirty.add(neighbourId);
+                }
+            }
+        }
+    }
+
+    private boolean isStale(int userId, Snapshot snapshot) {
+        return userVersions.getOrDefault(userId, 0L) > snapshot.version
+                || engine.anyLiked(userId, filmId -> filmVersions.getOrDefault(filmId, 0L) > snapshot.version);
+    }
+
+    private Snapshot compute(int userId) {
+        //Read before the computation, so a like change racing it leaves the list stale rather than lost
+        long version = clock.get();
+        return new Snapshot(engine.recommend(userId, size).stream().mapToInt(Integer::intValue).toArray(), version);
+    }
+
+    private static class Snapshot {
+        private final int[] filmIds;
+        private final long version;
+
+        Snapshot(int[] filmIds, long version) {
+            this.filmIds = filmIds;
+            this.version = version;
+        }
+
+        Snapshot newer(Snapshot other) {
+            return other.version >= version ? other : this;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.enums.SearchParam;
+import ru.yandex.practicum.filmorate.storage.JdbcRoundTrips;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+/**
+ * In-memory substring index over film titles and director names. Every text is case-folded and split
+ * into character bigrams, a query is answered by intersecting the posting lists of its bigrams and checking
+ * the few remaining candidates with {@link String#contains}, so the result is the same as the former
+ * {@code LOWER(name) LIKE LOWER('%query%')}, except that 'ё' matches 'е'.
+ * <p>
+ * The index is built from the database on first use and then kept up to date by {@link FilmDbStorage}
+ * and the director storage on every film and director change.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class FilmSearchIndex {
+    /**
+     * Posting lists taking part in the intersection, the rest of the query is checked by contains.
+     */
+    private static final int MAX_INTERSECTED_POSTINGS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TextIndex titles = new TextIndex();
+    private final TextIndex directorNames = new TextIndex();
+    private final Map<Integer, int[]> directorsByFilm = new HashMap<>();
+    private final Map<Integer, Postings> filmsByDirector = new HashMap<>();
+    private volatile boolean loaded;
+
+    /**
+     * Returns ids of the films whose title or one of whose directors' names contains the filter,
+     * depending on the given params. The ids are not ordered.
+     */
+    public Set<Integer> search(String filter, List<SearchParam> params) {
+        ensureLoaded();
+        String query = fold(filter);
+        Set<Integer> found = new HashSet<>();
+        lock.readLock().lock();
+        try {
+            if (params.contains(SearchParam.TITLE)) {
+                titles.search(query, found::add);
+            }
+            if (params.contains(SearchParam.DIRECTOR)) {
+                directorNames.search(query, directorId -> {
+                    Postings films = filmsByDirector.get(directorId);
+                    if (films != null) {
+                        films.forEach(found::add);
+                    }
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return found;
+    }
+
+    /**
+     * Adds a created film or re-indexes the title and directors of an updated one.
+     */
+    public void putFilm(Film film) {
+        int[] directorIds = film.getDirectors().stream().mapToInt(Director::getId).distinct().toArray();
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            titles.put(film.getId(), fold(film.getName()));
+            unlinkDirectors(film.getId());
+            linkDirectors(film.getId(), directorIds);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(int filmId) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            titles.remove(filmId);
+            unlinkDirectors(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putDirector(Director director) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            directorNames.put(director.getId(), fold(director.getName()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeDirector(int directorId) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            directorNames.remove(directorId);
+            Postings films = filmsByDirector.remove(directorId);
+            if (films != null) {
+                films.forEach(filmId -> {
+                    int[] directorIds = directorsByFilm.get(filmId);
+                    int[] rest = Arrays.stream(directorIds).filter(id -> id != directorId).toArray();
+                    if (rest.length == 0) {
+                        directorsByFilm.remove(filmId);
+                    } else {
+                        directorsByFilm.put(filmId, rest);
+                    }
+                });
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Case folding shared by indexed texts and queries: locale-independent lower case, with 'ё' read as 'е'
+     * since Russian titles are spelled both ways.
+     */
+    static String fold(String text) {
+        return text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+    /**
+     * The connection is taken before the lock: film changes are indexed after commit by threads that may still
+     * hold their connections, and would wait for the lock while the build waited for a connection.
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        JdbcRoundTrips.warmUp(() -> jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            lock.writeLock().lock();
+            try {
+                if (!loaded) {
+                    load(connection);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return null;
+        }));
+    }
+
+    private void load(Connection connection) throws SQLException {
+        Map<Integer, List<Integer>> directorIds = new HashMap<>();
+        query(connection, "SELECT id, name FROM films ORDER BY id", rs -> {
+            titles.put(rs.getInt("id"), fold(rs.getString("name")));
+        });
+        query(connection, "SELECT id, name FROM directors ORDER BY id", rs -> {
+            directorNames.put(rs.getInt("id"), fold(rs.getString("name")));
+        });
+        query(connection, "SELECT film_id, director_id FROM films_directors ORDER BY film_id", rs -> {
+            directorIds.computeIfAbsent(rs.getInt("film_id"), id -> new ArrayList<>())
+                    .add(rs.getInt("director_id"));
+        });
+        directorIds.forEach((filmId, ids) ->
+                linkDirectors(filmId, ids.stream().mapToInt(Integer::intValue).toArray()));
+        loaded = true;
+        log.info("search index built for {} films and {} directors", titles.size(), directorNames.size());
+    }
+
+    private static void query(Connection connection, String query, RowCallbackHandler handler) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(query);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                handler.processRow(rs);
+            }
+        }
+    }
+
+    private void linkDirectors(int filmId, int[] directorIds) {
+        if (directorIds.length == 0) {
+            return;
+        }
+        directorsByFilm.put(filmId, directorIds);
+        for (int directorId : directorIds) {
+            filmsByDirector.computeIfAbsent(directorId, id -> new Postings()).add(filmId);
+        }
+    }
+
+    private void unlinkDirectors(int filmId) {
+        int[] directorIds = directorsByFilm.remove(filmId);
+        if (directorIds == null) {
+            return;
+        }
+        for (int directorId : directorIds) {
+            Postings films = filmsByDirector.get(directorId);
+            if (films != null) {
+                films.remove(filmId);
+            }
+        }
+    }
+
+    /**
+     * Bigram inverted index over folded texts, keyed by entity id.
+     */
+    private static class TextIndex {
+        private final Map<Integer, String> texts = new HashMap<>();
+        private final Map<Integer, Postings> postings = new HashMap<>();
+
+        int size() {
+            return texts.size();
+        }
+
+        void put(int id, String text) {
+            remove(id);
+            texts.put(id, text);
+            for (int bigram : bigrams(text)) {
+                postings.computeIfAbsent(bigram, b -> new Postings()).add(id);
+            }
+        }
+
+        void remove(int id) {
+            String text = texts.remove(id);
+            if (text == null) {
+                return;
+            }
+            for (int bigram : bigrams(text)) {
+                Postings ids = postings.get(bigram);
+                ids.remove(id);
+                if (ids.size() == 0) {
+                    postings.remove(bigram);
+                }
+            }
+        }
+
+        void search(String query, IntConsumer consumer) {
+            if (query.length() < 2) {
+                texts.forEach((id, text) -> {
+                    if (text.contains(query)) {
+                        consumer.accept(id);
+                    }
+                });
+                return;
+            }
+            List<Postings> lists = new ArrayList<>();
+            for (int bigram : bigrams(query)) {
+                Postings ids = postings.get(bigram);
+                if (ids == null) {
+                    return;
+                }
+                lists.add(ids);
+            }
+            lists.sort(Comparator.comparingInt(Postings::size));
+            Postings smallest = lists.get(0);
+            List<Postings> others = lists.subList(1, Math.min(lists.size(), MAX_INTERSECTED_POSTINGS));
+            smallest.forEach(id -> {
+                for (Postings other : others) {
+                    if (!other.contains(id)) {
+                        return;
+                    }
+                }
+                if (texts.get(id).contains(query)) {
+                    consumer.accept(id);
+                }
+            });
+        }
+
+        private static Set<Integer> bigrams(String text) {
+            Set<Integer> bigrams = new HashSet<>();
+            for (int i = 0; i + 1 < text.length(); i++) {
+                bigrams.add(text.charAt(i) << 16 | text.charAt(i + 1));
+            }
+            return bigrams;
+        }
+    }
+
+    /**
+     * Sorted array of ids. Ids of new entities are the greatest so far, so additions are appends
+     * in the common case.
+     */
+    private static class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        void add(int id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        void remove(int id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+        }
+
+        void forEach(IntConsumer consumer) {
+            for (int i = 0; i < size; i++) {
+                consumer.accept(ids[i]);
+            }
+        }
+    }
+}
@@ -1,21 +1,34 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.enums.SearchParam;
+import ru.yandex.practicum.filmorate.model.enums.View;
 import ru.yandex.practicum.filmorate.storage.EntityStorage;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface FilmStorage extends EntityStorage<Film> {
 
     List<Film> getAll();
 
+    List<Film> getAll(View view);
+
+    List<Film> getPage(Integer afterId, Integer limit);
+
+    List<Film> getPage(Integer afterId, Integer limit, View view);
+
+    void streamAll(Consumer<Film> consumer);
+
     void addLike(Integer filmId, Integer userId);
 
     void deleteLike(Integer filmId, Integer userId);
 
     List<Film> getFilmsTop(Integer count, Integer genreId, Integer year);
 
+    List<Film> getFilmsTop(Integer count, Integer genreId, Integer year, View view);
+
     List<Film> getFilmsByDirector(int directorId, String sortBy);
 
     List<Integer> getRecommendations(Integer[] usersWithSimilarInterests, Integer idRecommendedUser,
@@ -26,4 +39,20 @@ public interface FilmStorage extends EntityStorage<Film> {
     List<Film> getCommonFilms(Integer userId, Integer friendsId);
 
     List<Film> getFilmsByIdList(List<Integer> idList);
+
+    List<Film> getFilmsByIdList(List<Integer> idList, View view);
+
+    /**
+     * Checks that the film exists without loading it with its genres, directors and likes.
+     */
+    boolean existsById(Integer id);
+
+    /**
+     * Throws NotFoundException, the same as findById does, unless the film exists.
+     */
+    default void checkExists(Integer id) {
+        if (!existsById(id)) {
+            throw new NotFoundException("id", String.format("film with id %d not found", id));
+        }
+    }
 }
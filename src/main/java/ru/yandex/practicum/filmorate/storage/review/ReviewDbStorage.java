@@ -31,16 +31,9 @@ public class ReviewDbStorage implements ReviewStorage {
     public List<Review> getReviewsByParameters(Integer filmId, int count) {
         List<Review> reviews;
         if (filmId != null) {
-            String query = "SELECT * FROM reviews " +
-                    "WHERE film_id = ? " +
-                    "ORDER BY useful DESC " +
-                    "LIMIT ?";
-            reviews = jdbcTemplate.query(query, ReviewMapper::mapToReview, filmId, count);
+            reviews = jdbcTemplate.query(ReviewQueries.REVIEWS_OF_FILM, ReviewMapper::mapToReview, filmId, count);
         } else {
-            String query = "SELECT * FROM reviews " +
-                    "ORDER BY useful DESC " +
-                    "LIMIT ?";
-            reviews = jdbcTemplate.query(query, ReviewMapper::mapToReview, count);
+            reviews = jdbcTemplate.query(ReviewQueries.REVIEWS, ReviewMapper::mapToReview, count);
         }
 
         return reviews;
@@ -49,10 +42,7 @@ public class ReviewDbStorage implements ReviewStorage {
     @Override
     public Review findById(Integer id) {
         try {
-            String reviewQuery = "SELECT * FROM reviews " +
-                    "WHERE review_id = ?";
-
-            return jdbcTemplate.queryForObject(reviewQuery, ReviewMapper::mapToReview, id);
+            return jdbcTemplate.queryForObject(ReviewQueries.REVIEW_BY_ID, ReviewMapper::mapToReview, id);
         } catch (EmptyResultDataAccessException e) {
             throw new NotFoundException("id", String.format("review with id %d does not exists", id));
         }
@@ -113,14 +103,8 @@ public class ReviewDbStorage implements ReviewStorage {
     public void addLike(Integer reviewId, Integer userId) {
         this.isReviewExists(reviewId);
 
-        String checkQuery =
-                "SELECT review_id " +
-                        "FROM reviews_rates " +
-                        "WHERE user_id = ? " +
-                        "AND review_id = ?;";
-
         if (!jdbcTemplate
-                .query(checkQuery, (rs, n) -> rs.getInt("review_id"), userId, reviewId)
+                .query(ReviewQueries.REVIEW_RATE, (rs, n) -> rs.getInt("review_id"), userId, reviewId)
                 .isEmpty()) {
             throw new DuplicateEventException(String.format("Like on review with id %d from user with id" +
                             " %s already exist",
@@ -140,13 +124,8 @@ public class ReviewDbStorage implements ReviewStorage {
     public void removeLike(Integer reviewId, Integer userId) {
         this.isReviewExists(reviewId);
 
-        String checkQuery = "SELECT review_id " +
-                        "FROM reviews_rates " +
-                        "WHERE user_id = ? " +
-                        "AND review_id = ?;";
-
         if (jdbcTemplate
-                .query(checkQuery, (rs, n) -> rs.getInt("review_id"), userId, reviewId)
+                .query(ReviewQueries.REVIEW_RATE, (rs, n) -> rs.getInt("review_id"), userId, reviewId)
                 .isEmpty()) {
             throw new NotFoundException("review", String.format("Like on review with id %d from user with id" +
                             " %s not found",
@@ -166,13 +145,8 @@ public class ReviewDbStorage implements ReviewStorage {
     public void addDislike(Integer reviewId, Integer userId) {
         this.isReviewExists(reviewId);
 
-        String checkQuery = "SELECT review_id " +
-                        "FROM reviews_rates " +
-                        "WHERE user_id = ? " +
-                        "AND review_id = ?;";
-
         if (!jdbcTemplate
-                .query(checkQuery, (rs, n) -> rs.getInt("review_id"), userId, reviewId)
+                .query(ReviewQueries.REVIEW_RATE, (rs, n) -> rs.getInt("review_id"), userId, reviewId)
                 .isEmpty()) {
             throw new DuplicateEventException(String.format("Dislike on review with id %d from user with id" +
                             " %s already exist",
@@ -192,13 +166,8 @@ public class ReviewDbStorage implements ReviewStorage {
     public void removeDislike(Integer reviewId, Integer userId) {
         this.isReviewExists(reviewId);
 
-        String checkQuery = "SELECT review_id " +
-                        "FROM reviews_rates " +
-                        "WHERE user_id = ? " +
-                        "AND review_id = ?;";
-
         if (jdbcTemplate
-                .query(checkQuery, (rs, n) -> rs.getInt("review_id"), userId, reviewId)
+                .query(ReviewQueries.REVIEW_RATE, (rs, n) -> rs.getInt("review_id"), userId, reviewId)
                 .isEmpty()) {
             throw new NotFoundException("review", String.format("Dislike on review with id %d from user with id" +
                             " %s not found",
@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.storage.review;
+
+/**
+ * Statements of {@link ReviewDbStorage} reading reviews and their rates.
+ */
+public final class ReviewQueries {
+    public static final String REVIEWS_OF_FILM = "SELECT * FROM reviews " +
+            "WHERE film_id = ? " +
+            "ORDER BY useful DESC " +
+            "LIMIT ?";
+    public static final String REVIEWS = "SELECT * FROM reviews " +
+            "ORDER BY useful DESC " +
+            "LIMIT ?";
+    public static final String REVIEW_BY_ID = "SELECT * FROM reviews " +
+            "WHERE review_id = ?";
+    public static final String REVIEW_RATE = "SELECT review_id " +
+            "FROM reviews_rates " +
+            "WHERE user_id = ? " +
+            "AND review_id = ?;";
+
+    private ReviewQueries() {
+    }
+}
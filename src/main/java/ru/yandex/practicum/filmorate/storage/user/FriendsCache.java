@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.SortedIntArrays;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Friend ids of every user as sorted int arrays. A user's friends are loaded on first access
+ * and then updated by {@link UserDbStorage} on every friend added or removed.
+ */
+@Component
+@RequiredArgsConstructor
+public class FriendsCache {
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Integer, int[]> friends = new ConcurrentHashMap<>();
+    //Counts friend changes, a list loaded across one of them is not stored
+    private final AtomicLong changes = new AtomicLong();
+
+    /**
+     * Returns sorted friend ids of the user. The array is shared and must not be modified.
+     */
+    public int[] getFriends(int userId) {
+        int[] cached = friends.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+        //Loaded outside of the map, so the query does not block other users of its bin and their updates
+        long loadedAt = changes.get();
+        int[] loaded = jdbcTemplate.queryForList(UserQueries.SORTED_FRIEND_IDS, Integer.class, userId)
+                .stream().mapToInt(Integer::intValue).toArray();
+        int[] stored = friends.compute(userId, (id, current) ->
+                current != null || changes.get() != loadedAt ? current : loaded);
+        return stored != null ? stored : loaded;
+    }
+
+    public int[] getMutualFriends(int userId, int otherId) {
+        return SortedIntArrays.intersect(getFriends(userId), getFriends(otherId));
+    }
+
+    /**
+     * Called after the friendship is written. A list loaded concurrently is either stored before the update,
+     * which then applies to it and is idempotent if the load already saw the new friend, or not stored at all.
+     */
+    public void addFriend(int userId, int friendId) {
+        changes.incrementAndGet();
+        friends.computeIfPresent(userId, (id, ids) -> SortedIntArrays.insert(ids, friendId));
+    }
+
+    public void deleteFriend(int userId, int friendId) {
+        changes.incrementAndGet();
+        friends.computeIfPresent(userId, (id, ids) -> SortedIntArrays.remove(ids, friendId));
+    }
+
+    /**
+     * Drops everything, since the removed user may be in any friend list.
+     */
+    public void removeUser(int userId) {
+        changes.incrementAndGet();
+        friends.clear();
+    }
+}
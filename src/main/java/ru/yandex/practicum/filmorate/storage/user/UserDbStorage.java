@@ -10,27 +10,65 @@ import ru.yandex.practicum.filmorate.exceptions.DuplicateEventException;
 import ru.yandex.practicum.filmorate.exceptions.*;
 import ru.yandex.practicum.filmorate.mappers.UserMapper;
 import ru.yandex.practicum.filmorate.model.User;
-
-import java.util.HashMap;
+import ru.yandex.practicum.filmorate.model.enums.View;
+import ru.yandex.practicum.filmorate.storage.IdBitmap;
+import ru.yandex.practicum.filmorate.storage.QueryShapeRegistry;
+import ru.yandex.practicum.filmorate.storage.film.FilmRecommendationEngine;
+import ru.yandex.practicum.filmorate.storage.film.FilmRecommendationSnapshots;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Component("userDbStorage")
 @Slf4j
 public class UserDbStorage implements UserStorage {
-    private final JdbcTemplate jdbcTemplate;
+    //Covers a page of the maximum size, so its attributes are loaded in one round trip
+    private static final int ID_CHUNK_SIZE = 1024;
 
-    public UserDbStorage(JdbcTemplate jdbcTemplate) {
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmRecommendationEngine recommendationEngine;
+    private final FilmRecommendationSnapshots recommendationSnapshots;
+    private final FriendsCache friendsCache;
+    private final QueryShapeRegistry queryShapes;
+    private final IdBitmap<User> userIds;
+
+    public UserDbStorage(JdbcTemplate jdbcTemplate, FilmRecommendationEngine recommendationEngine,
+                         FilmRecommendationSnapshots recommendationSnapshots, FriendsCache friendsCache,
+                         QueryShapeRegistry queryShapes, IdBitmap<User> userIds) {
         this.jdbcTemplate = jdbcTemplate;
+        this.recommendationEngine = recommendationEngine;
+        this.recommendationSnapshots = recommendationSnapshots;
+        this.friendsCache = friendsCache;
+        this.queryShapes = queryShapes;
+        this.userIds = userIds;
     }
 
     @Override
     public List<User> getAll() {
+        return getAll(View.FULL);
+    }
+
+    @Override
+    public List<User> getAll(View view) {
         String query = "select * from users";
         List<User> users = jdbcTemplate.query(query, UserMapper::mapToUser);
-        this.setFriendsId(users);
+        this.setFriendsId(users, view);
+
+        return users;
+    }
+
+    @Override
+    public List<User> getPage(Integer afterId, Integer limit) {
+        return getPage(afterId, limit, View.FULL);
+    }
+
+    @Override
+    public List<User> getPage(Integer afterId, Integer limit, View view) {
+        List<User> users = jdbcTemplate.query(UserQueries.USERS_PAGE, UserMapper::mapToUser, afterId, limit);
+        this.setFriendsId(users, view);
 
         return users;
     }
@@ -38,8 +76,7 @@ public class UserDbStorage implements UserStorage {
     @Override
     public User findById(Integer id) {
         try {
-            String query = "select * from users where id = ?";
-            User user = jdbcTemplate.queryForObject(query, UserMapper::mapToUser, id);
+            User user = jdbcTemplate.queryForObject(UserQueries.USER_BY_ID, UserMapper::mapToUser, id);
             this.setFriendsId(user);
 
             return user;
@@ -59,6 +96,7 @@ public class UserDbStorage implements UserStorage {
                 .usingGeneratedKeyColumns("id");
         int id = jdbcInsert.executeAndReturnKey(new BeanPropertySqlParameterSource(user)).intValue();
         user.setId(id);
+        userIds.add(id);
 
         log.info("created user with id {}", user.getId());
 
@@ -88,6 +126,10 @@ public class UserDbStorage implements UserStorage {
         this.isUserExists(id);
         String query = "delete from users where id = ?";
         jdbcTemplate.update(query, id);
+        userIds.remove(id);
+        recommendationEngine.removeUser(id);
+        recommendationSnapshots.removeUser(id);
+        friendsCache.removeUser(id);
     }
 
     @Override
@@ -95,14 +137,8 @@ public class UserDbStorage implements UserStorage {
         this.isUserExists(id);
         this.isUserExists(friendId);
 
-        String checkQuery =
-                "SELECT user_id " +
-                        "FROM friendships " +
-                        "WHERE friend_id = ? " +
-                        "AND user_id = ?;";
-
         if (!jdbcTemplate
-                .query(checkQuery, (rs, n) -> rs.getInt("user_id"), friendId, id)
+                .query(UserQueries.FRIENDSHIP, (rs, n) -> rs.getInt("user_id"), friendId, id)
                 .isEmpty()) {
             throw new DuplicateEventException(String.format("User with id %d already friend with user with id %d",
                     friendId, id));
@@ -111,6 +147,7 @@ public class UserDbStorage implements UserStorage {
         String query = "merge into friendships(user_id, friend_id) " +
                 "values (?, ?)";
         jdbcTemplate.update(query, id, friendId);
+        friendsCache.addFriend(id, friendId);
 
         log.info("user with id {} added to friend list user with id {}", id, friendId);
     }
@@ -120,14 +157,8 @@ public class UserDbStorage implements UserStorage {
         this.isUserExists(id);
         this.isUserExists(friendId);
 
-        String checkQuery =
-                "SELECT user_id " +
-                        "FROM friendships " +
-                        "WHERE friend_id = ? " +
-                        "AND user_id = ?;";
-
         if (jdbcTemplate
-                .query(checkQuery, (rs, n) -> rs.getInt("user_id"), friendId, id)
+                .query(UserQueries.FRIENDSHIP, (rs, n) -> rs.getInt("user_id"), friendId, id)
                 .isEmpty()) {
             throw new NotFoundException("user", String.format("User with id %d not friend with user with id %d",
                     friendId, id));
@@ -135,6 +166,7 @@ public class UserDbStorage implements UserStorage {
 
         String query = "delete from friendships where user_id = ? and friend_id = ?";
         jdbcTemplate.update(query, id, friendId);
+        friendsCache.deleteFriend(id, friendId);
         log.info("user with id {} removed from friend list user with id {}", id, friendId);
     }
 
@@ -142,12 +174,9 @@ public class UserDbStorage implements UserStorage {
     public List<User> getFriendsSet(Integer id) {
         this.isUserExists(id);
 
-        String query = "select friend_id from friendships where user_id = ?";
-        List<Integer> idList = jdbcTemplate.queryForList(query, Integer.class, id);
+        List<Integer> idList = jdbcTemplate.queryForList(UserQueries.FRIEND_IDS, Integer.class, id);
 
-        return idList.stream()
-                .map(this::findById)
-                .collect(Collectors.toList());
+        return getUsersByIdList(idList);
     }
 
     @Override
@@ -155,47 +184,71 @@ public class UserDbStorage implements UserStorage {
         this.isUserExists(id);
         this.isUserExists(friendId);
 
-        String query = "SELECT u.* FROM USERS u " +
-                "JOIN friendships uf ON u.id = uf.FRIEND_ID " +
-                "JOIN friendships f on u.id = f.FRIEND_ID " +
-                "WHERE uf.friend_id = f.friend_id and uf.user_id=? and f.user_id=?";
+        List<Integer> ids = new ArrayList<>();
+        for (int mutualId : friendsCache.getMutualFriends(id, friendId)) {
+            ids.add(mutualId);
+        }
+        return getUsersByIdList(ids);
+    }
+
+    @Override
+    public List<User> getUsersByIdList(List<Integer> idList) {
+        List<User> users = new ArrayList<>();
+        for (int from = 0; from < idList.size(); from += ID_CHUNK_SIZE) {
+            List<Integer> chunk = idList.subList(from, Math.min(from + ID_CHUNK_SIZE, idList.size()));
+            String query = queryShapes.inList("users.byIds", UserQueries.USERS_BY_IDS, chunk.size());
+            users.addAll(jdbcTemplate.query(query, UserMapper::mapToUser, QueryShapeRegistry.padded(chunk, 1)));
+        }
+        this.setFriendsId(users);
 
-        return jdbcTemplate.query(query, UserMapper::mapToUser, id, friendId);
+        return users;
+    }
+
+    /**
+     * The summary view has no friends list at all, so the friendships table is not queried.
+     */
+    private void setFriendsId(List<User> users, View view) {
+        if (view == View.SUMMARY) {
+            users.forEach(user -> user.setFriends(null));
+        } else {
+            this.setFriendsId(users);
+        }
     }
 
     private void setFriendsId(List<User> users) {
-        Map<Integer, User> usersMap = new HashMap<>();
+        Map<Integer, User> usersMap = new LinkedHashMap<>();
         users.forEach(user -> usersMap.put(user.getId(), user));
 
-        String friendsQuery = "select * from friendships";
-        jdbcTemplate.query(friendsQuery, rs -> {
-            usersMap.get(rs.getInt("user_id")).addFriend(rs.getInt("friend_id"));
-        });
+        List<Integer> ids = new ArrayList<>(usersMap.keySet());
+        for (int from = 0; from < ids.size(); from += ID_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + ID_CHUNK_SIZE, ids.size()));
+            String friendsQuery = queryShapes.inList("users.friends", UserQueries.FRIENDS_OF_USERS, chunk.size());
+            jdbcTemplate.query(friendsQuery, rs -> {
+                usersMap.get(rs.getInt("user_id")).addFriend(rs.getInt("friend_id"));
+            }, QueryShapeRegistry.padded(chunk, 1));
+        }
     }
 
     private void setFriendsId(User user) {
-        String friendsQuery = "select * from friendships where user_id = ?";
-        jdbcTemplate.query(friendsQuery, rs -> {
+        jdbcTemplate.query(UserQueries.FRIENDS_OF_USER, rs -> {
             Optional<Integer> friendId = Optional.of(rs.getInt("friend_id"));
             friendId.ifPresent(user::addFriend);
         }, user.getId());
     }
 
+    @Override
+    public boolean existsById(Integer id) {
+        return userIds.exists(id);
+    }
+
     private void isUserExists(Integer id) {
-        String sqlQuery = "select count(*) from users where id = ?";
-        int result = jdbcTemplate.queryForObject(sqlQuery, Integer.class, id);
-        if (result != 1) {
+        if (!userIds.exists(id)) {
             throw new NotFoundException("id", String
                     .format("user with id %d does not exists", id));
         }
     }
     @Override
     public List<Integer> getIdUsersWithSimilarInterests(Integer userId) {
-        String sql = "SELECT fl2.user_id " +
-                "FROM films_likes AS fl1 JOIN films_likes AS fl2 ON fl1.film_id = fl2.film_id " +
-                "WHERE fl1.user_id = ? AND fl1.user_id<>fl2.user_id " +
-                "GROUP BY fl1.user_id , fl2.user_id " +
-                "ORDER BY COUNT(fl1.film_id) DESC ";
-        return jdbcTemplate.queryForList(sql, Integer.class, userId);
+        return jdbcTemplate.queryForList(UserQueries.USERS_WITH_SIMILAR_INTERESTS, Integer.class, userId);
     }
 }
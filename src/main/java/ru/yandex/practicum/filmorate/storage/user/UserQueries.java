@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import ru.yandex.practicum.filmorate.storage.QueryShapeRegistry;
+
+/**
+ * Statements of {@link UserDbStorage} and {@link FriendsCache} reading users and friendships.
+ */
+public final class UserQueries {
+    public static final String USER_BY_ID = "select * from users where id = ?";
+    public static final String USERS_PAGE = "select * from users where id > ? order by id limit ?";
+    /**
+     * Templates of {@link QueryShapeRegistry#inList}, the ids replace %s.
+     */
+    public static final String USERS_BY_IDS = "select * from users where id in (%s) order by id";
+    public static final String FRIENDS_OF_USERS = "select * from friendships where user_id in (%s)";
+    public static final String FRIENDS_OF_USER = "select * from friendships where user_id = ?";
+    public static final String FRIEND_IDS = "select friend_id from friendships where user_id = ?";
+    /**
+     * Friend ids in the order {@link FriendsCache} keeps them in.
+     */
+    public static final String SORTED_FRIEND_IDS =
+            "SELECT friend_id FROM friendships WHERE user_id = ? ORDER BY friend_id";
+    public static final String FRIENDSHIP = "SELECT user_id " +
+            "FROM friendships " +
+            "WHERE friend_id = ? " +
+            "AND user_id = ?;";
+    public static final String USERS_WITH_SIMILAR_INTERESTS = "SELECT fl2.user_id " +
+            "FROM films_likes AS fl1 JOIN films_likes AS fl2 ON fl1.film_id = fl2.film_id " +
+            "WHERE fl1.user_id = ? AND fl1.user_id<>fl2.user_id " +
+            "GROUP BY fl1.user_id , fl2.user_id " +
+            "ORDER BY COUNT(fl1.film_id) DESC ";
+
+    private UserQueries() {
+    }
+}
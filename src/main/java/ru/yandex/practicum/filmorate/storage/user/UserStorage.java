@@ -1,15 +1,35 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.enums.View;
 import ru.yandex.practicum.filmorate.storage.EntityStorage;
 
 import java.util.List;
 
 public interface UserStorage extends EntityStorage<User> {
     List<User> getAll();
+    List<User> getAll(View view);
+    List<User> getPage(Integer afterId, Integer limit);
+    List<User> getPage(Integer afterId, Integer limit, View view);
     void addFriend(Integer id, Integer friendsId);
     void deleteFriend(Integer id, Integer friendId);
     List<User> getFriendsSet(Integer id);
     List<User> getMutualFriendsSet(Integer id, Integer friendId);
     List<Integer> getIdUsersWithSimilarInterests(Integer id);
+    List<User> getUsersByIdList(List<Integer> idList);
+
+    /**
+     * Checks that the user exists without loading it or its friends.
+     */
+    boolean existsById(Integer id);
+
+    /**
+     * Throws NotFoundException, the same as findById does, unless the user exists.
+     */
+    default void checkExists(Integer id) {
+        if (!existsById(id)) {
+            throw new NotFoundException("id", String.format("user with id %d not found", id));
+        }
+    }
 }
@@ -0,0 +1,24 @@
+--secondary indexes for the filters and sort orders of storage queries, each ending with the primary key
+--columns it returns, so the lookups are answered from the index alone
+
+--films by rate: top films without filters, films of a director sorted by likes
+create index if not exists FILMS_RATE_ID_IDX on FILMS (RATE desc, ID);
+
+--films liked by a user: recommendations, users with similar interests, cascades of user removal
+create index if not exists FILMS_LIKES_USER_ID_FILM_ID_IDX on FILMS_LIKES (USER_ID, FILM_ID);
+
+--films of a genre: top films of a genre
+create index if not exists FILMS_GENRES_GENRE_ID_FILM_ID_IDX on FILMS_GENRES (GENRE_ID, FILM_ID);
+
+--films of a director
+create index if not exists FILMS_DIRECTORS_DIRECTOR_ID_FILM_ID_IDX on FILMS_DIRECTORS (DIRECTOR_ID, FILM_ID);
+
+--users who added a user as a friend: friendship checks, cascades of user removal
+create index if not exists FRIENDSHIPS_FRIEND_ID_USER_ID_IDX on FRIENDSHIPS (FRIEND_ID, USER_ID);
+
+--most useful reviews of a film and of all films
+create index if not exists REVIEWS_FILM_ID_USEFUL_IDX on REVIEWS (FILM_ID, USEFUL desc);
+create index if not exists REVIEWS_USEFUL_IDX on REVIEWS (USEFUL desc);
+
+--review rates of a user, cascades of user removal
+create index if not exists REVIEWS_RATES_USER_ID_REVIEW_ID_IDX on REVIEWS_RATES (USER_ID, REVIEW_ID);
@@ -0,0 +1,5 @@
+--release year stored with every film change, so that the year filter of top films can use an index
+alter table FILMS add column if not exists RELEASE_YEAR INTEGER generated always as (EXTRACT(YEAR FROM RELEASE_DATE));
+
+--top films of a year: range of the year read in rate order
+create index if not exists FILMS_RELEASE_YEAR_RATE_ID_IDX on FILMS (RELEASE_YEAR, RATE desc, ID);
@@ -0,0 +1,3 @@
+--feed of a user, whole or newer than a since-cursor, read in event order; databases baselined at V1
+--were created without it
+create index if not exists EVENTS_USER_ID_EVENT_ID_IDX on EVENTS (USER_ID, EVENT_ID);
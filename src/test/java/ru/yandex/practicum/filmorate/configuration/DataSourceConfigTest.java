@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:datasource-config;DB_CLOSE_DELAY=-1")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("highread")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class DataSourceConfigTest {
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Test
+    void test_highReadPresetIsApplied() throws SQLException {
+        HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+        assertEquals(16, hikari.getMaximumPoolSize());
+        assertEquals(16, hikari.getMinimumIdle());
+        assertEquals("jdbc:h2:mem:datasource-config;DB_CLOSE_DELAY=-1;CACHE_SIZE=131072;QUERY_CACHE_SIZE=256;" +
+                "LOCK_TIMEOUT=5000", hikari.getJdbcUrl());
+        assertEquals(500, jdbcTemplate.getFetchSize());
+        assertEquals(256, jdbcTemplate.queryForObject(
+                "SELECT SETTING_VALUE FROM INFORMATION_SCHEMA.SETTINGS WHERE SETTING_NAME = 'QUERY_CACHE_SIZE'",
+                Integer.class));
+    }
+
+    @Test
+    void test_poolSaturationMetricsArePublished() {
+        jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+
+        assertNotNull(meterRegistry.find("hikaricp.connections.pending").tag("pool", "filmorate").gauge());
+        assertNotNull(meterRegistry.find("hikaricp.connections.active").tag("pool", "filmorate").gauge());
+        assertNotNull(meterRegistry.find("hikaricp.connections.acquire").tag("pool", "filmorate").timer());
+    }
+
+    @Test
+    void test_h2OptionsOfUrlTakePrecedence() {
+        DataSourceTuningProperties.H2 h2 = new DataSourceTuningProperties.H2();
+        h2.setStatementCacheSize(256);
+        h2.setWriteDelay(Duration.ofMillis(100));
+        h2.setAutoServer(true);
+
+        assertEquals("jdbc:h2:file:./db/filmorate;query_cache_size=8;WRITE_DELAY=100;AUTO_SERVER=TRUE",
+                DataSourceConfig.withH2Options("jdbc:h2:file:./db/filmorate;query_cache_size=8", h2));
+        assertEquals("jdbc:h2:mem:test;QUERY_CACHE_SIZE=256;WRITE_DELAY=100",
+                DataSourceConfig.withH2Options("jdbc:h2:mem:test", h2));
+    }
+}
@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.configuration;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class VirtualThreadsConfigTest {
+
+    @Test
+    void test_failsOnJdkWithoutVirtualThreads() {
+        assumeTrue(Runtime.version().feature() < 21);
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                VirtualThreadsConfig::newVirtualThreadPerTaskExecutor);
+        assertTrue(e.getMessage().startsWith("the virtual-threads profile needs JDK 21 or later"));
+    }
+
+    @Test
+    void test_runsTasksOnVirtualThreads() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21);
+        ExecutorService executor = VirtualThreadsConfig.newVirtualThreadPerTaskExecutor();
+        try {
+            Object virtual = executor.submit(() -> Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()))
+                    .get();
+            assertEquals(Boolean.TRUE, virtual);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
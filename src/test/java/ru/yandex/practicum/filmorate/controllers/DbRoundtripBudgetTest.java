@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.annotations.DbRoundtripBudget;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@Import(DbRoundtripBudgetTest.NamesController.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@Sql(scripts = {"file:src/test/resources/test-schema.sql",
+        "file:src/test/resources/test-data-users-films.sql"})
+class DbRoundtripBudgetTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void returns_roundTripsHeader_forResponsesWithAndWithoutBody() throws Exception {
+        //The first request also loads the genre and mpa dictionaries
+        mockMvc.perform(get("/films/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Db-Roundtrips", "4"));
+        mockMvc.perform(get("/films/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Db-Roundtrips", "2"));
+        mockMvc.perform(put("/films/1/like/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Db-Roundtrips", "4"));
+        mockMvc.perform(get("/films/9999"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().exists("X-Db-Roundtrips"));
+    }
+
+    @Test
+    void when_EndpointQueriesPerRow_budgetFails() throws Exception {
+        mockMvc.perform(get("/test/names/joined")).andExpect(status().isOk());
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> mockMvc.perform(get("/test/names/per-user")));
+        assertEquals("GET /test/names/{mode} sent 4 statements to the database, its budget is 1", e.getMessage());
+    }
+
+    @RestController
+    static class NamesController {
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @GetMapping("/test/names/{mode}")
+        @DbRoundtripBudget(1)
+        public List<String> getNames(@PathVariable String mode) {
+            if (mode.equals("joined")) {
+                return jdbcTemplate.queryForList("SELECT name FROM users ORDER BY id", String.class);
+            }
+            List<String> names = new ArrayList<>();
+            for (Integer id : jdbcTemplate.queryForList("SELECT id FROM users ORDER BY id", Integer.class)) {
+                names.add(jdbcTemplate.queryForObject("SELECT name FROM users WHERE id = ?", String.class, id));
+            }
+            return names;
+        }
+    }
+}
@@ -11,14 +11,20 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.PageLimits;
 
 import java.time.LocalDate;
 import java.time.Month;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -38,6 +44,9 @@ class FilmControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Test
     void creates_newFilm_andStatusIs200() throws Exception {
         Film f = new Film();
@@ -185,6 +194,21 @@ class FilmControllerTest {
                 .andExpect(jsonPath("$.likes", hasSize(1)));
     }
 
+    @Test
+    @DisplayName("Check that likes are written as a sorted array of ids and read back")
+    void likesAreSerializedAsSortedIdArray() throws Exception {
+        mockMvc.perform(put("/films/1/like/3"));
+        mockMvc.perform(put("/films/1/like/1"));
+        String body = mockMvc.perform(get("/films/1"))
+                .andExpect(jsonPath("$.likes[0]").value(1))
+                .andExpect(jsonPath("$.likes[1]").value(3))
+                .andReturn().getResponse().getContentAsString();
+
+        Film film = objectMapper.readValue(body, Film.class);
+        assertEquals(Set.of(1, 3), film.getLikes());
+        Assertions.assertTrue(film.getLikes().contains(3));
+    }
+
     @Test
     void deleteLikes_andLikesCountIs0() throws Exception {
         mockMvc.perform(put("/films/2/like/1"));
@@ -201,6 +225,99 @@ class FilmControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    @DisplayName("Check that films are returned page by page with a cursor")
+    void getFilmsPageByPage() throws Exception {
+        String cursor = mockMvc.perform(get("/films?limit=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.*", hasSize(2)))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(header().exists("X-Next-Cursor"))
+                .andReturn().getResponse().getHeader("X-Next-Cursor");
+
+        mockMvc.perform(get("/films?limit=2&after=" + cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.*", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(3))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+    }
+
+    @Test
+    @DisplayName("Check that a limit above the maximum page size still returns a next cursor")
+    void getFilmsPageWithLimitAboveMaximum() throws Exception {
+        jdbcTemplate.batchUpdate("insert into films(name, description, release_date, duration, mpa_rate_id) "
+                        + "values (?, 'desc', '20200101', 100, 1)",
+                IntStream.range(0, PageLimits.MAX_PAGE_SIZE)
+                        .mapToObj(i -> new Object[]{"film " + i})
+                        .collect(Collectors.toList()));
+
+        String cursor = mockMvc.perform(get("/films?view=summary&limit=" + (PageLimits.MAX_PAGE_SIZE + 500)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.*", hasSize(PageLimits.MAX_PAGE_SIZE)))
+                .andExpect(header().exists("X-Next-Cursor"))
+                .andReturn().getResponse().getHeader("X-Next-Cursor");
+
+        mockMvc.perform(get("/films?view=summary&limit=" + (PageLimits.MAX_PAGE_SIZE + 500) + "&after=" + cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.*", hasSize(3)))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+    }
+
+    @Test
+    @DisplayName("Check that a film deleted after the popularity index was read is left out of the top")
+    void getFilmsTopWithoutFilmMissingFromDatabase() throws Exception {
+        mockMvc.perform(get("/films/popular"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.*", hasSize(3)));
+
+        //Removed behind the index, as a delete committed between the index read and the film query
+        jdbcTemplate.update("delete from films where id = 2");
+
+        mockMvc.perform(get("/films/popular"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.*", hasSize(2)))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].id").value(3));
+    }
+
+    @Test
+    @DisplayName("Check that the summary view leaves likes out of film lists")
+    void getFilmsSummaryWithoutLikes() throws Exception {
+        mockMvc.perform(put("/films/1/like/1"));
+
+        mockMvc.perform(get("/films?view=summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.*", hasSize(3)))
+                .andExpect(jsonPath("$[0].name").exists())
+                .andExpect(jsonPath("$[0].likes").doesNotExist());
+        mockMvc.perform(get("/films/popular?count=1&view=summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].rate").value(1))
+                .andExpect(jsonPath("$[0].likes").doesNotExist());
+        mockMvc.perform(get("/films/popular?count=1"))
+                .andExpect(jsonPath("$[0].likes[0]").value(1));
+        mockMvc.perform(get("/films?view=compact"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Check that all films are exported as newline-delimited JSON")
+    void exportFilmsAsNdjson() throws Exception {
+        MvcResult result = mockMvc.perform(get("/films/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(3, lines.length);
+        assertEquals(1, objectMapper.readValue(lines[0], Film.class).getId());
+    }
+
     @Test
     void getTop2Film() throws Exception {
         mockMvc.perform(get("/films/popular?count=2"))
@@ -6,6 +6,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.yandex.practicum.filmorate.model.MpaCategory;
@@ -43,4 +44,16 @@ class MpaControllerTest {
         ).andExpect(jsonPath("$.*", hasSize(5)))
                 .andExpect(status().isOk());
     }
+
+    @Test
+    void test_findAllMpaCategoriesFromCacheAsJson() throws Exception {
+        mockMvc.perform(get("/mpa"));
+
+        mockMvc.perform(
+                get("/mpa")
+        ).andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].name").value("G"));
+    }
 }
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "filmorate.popularity-index.enabled=false")
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@Sql(scripts = {"file:src/test/resources/test-schema.sql",
+        "file:src/test/resources/test-data-users-films.sql"})
+class PrometheusEndpointTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void scrape_containsStorageLatencyRowsAndRoundTrips() throws Exception {
+        mockMvc.perform(get("/films/popular?count=2&year=2000")).andExpect(status().isOk());
+
+        List<String> samples = scrape().stream()
+                .filter(line -> line.contains("storage=\"FilmDbStorage\""))
+                .filter(line -> line.contains("method=\"getFilmsTop\""))
+                .filter(line -> line.contains("shape=\"count,year,full\""))
+                .collect(Collectors.toList());
+
+        for (String quantile : new String[]{"0.5", "0.99", "0.999"}) {
+            assertTrue(samples.stream().anyMatch(line -> line.startsWith("filmorate_storage_calls_seconds{")
+                    && line.contains("quantile=\"" + quantile + "\"")), "no p" + quantile + " in " + samples);
+        }
+        assertTrue(samples.stream().anyMatch(line -> line.startsWith("filmorate_storage_calls_seconds_bucket{")));
+        assertEquals(1.0, value(samples, "filmorate_storage_calls_seconds_count{"));
+        assertEquals(1.0, value(samples, "filmorate_storage_rows_count{"));
+        assertTrue(value(samples, "filmorate_storage_roundtrips_sum{") >= 1.0);
+    }
+
+    @Test
+    void scrape_countsRoundTripsOfEveryCall() throws Exception {
+        mockMvc.perform(get("/users/1")).andExpect(status().isOk());
+        mockMvc.perform(get("/users/2")).andExpect(status().isOk());
+
+        List<String> samples = scrape().stream()
+                .filter(line -> line.contains("storage=\"UserDbStorage\""))
+                .filter(line -> line.contains("method=\"findById\""))
+                .collect(Collectors.toList());
+
+        assertEquals(2.0, value(samples, "filmorate_storage_roundtrips_count{"));
+        assertEquals(2.0, value(samples, "filmorate_storage_rows_sum{"));
+        assertTrue(value(samples, "filmorate_storage_roundtrips_sum{") >= 2.0);
+    }
+
+    private List<String> scrape() throws Exception {
+        String body = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return Arrays.asList(body.split("\n"));
+    }
+
+    private static double value(List<String> samples, String prefix) {
+        return samples.stream()
+                .filter(line -> line.startsWith(prefix))
+                .mapToDouble(line -> Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1)))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("no " + prefix + " in " + samples));
+    }
+}
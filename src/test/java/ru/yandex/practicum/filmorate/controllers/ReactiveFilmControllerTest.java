@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:reactive;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("reactive")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@Sql(scripts = {"file:src/test/resources/test-schema.sql",
+        "file:src/test/resources/test-data-users-films.sql"})
+class ReactiveFilmControllerTest {
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void streamsAllFilmsWithAttributes() throws Exception {
+        List<JsonNode> films = stream(get("/films"));
+
+        assertEquals(3, films.size());
+        assertEquals(1, films.get(0).get("id").asInt());
+        assertEquals("G", films.get(0).get("mpa").get("name").asText());
+        assertEquals(2, films.get(0).get("genres").size());
+        assertEquals("Комедия", films.get(0).get("genres").get(0).get("name").asText());
+        assertEquals(3, films.get(2).get("id").asInt());
+    }
+
+    @Test
+    void streamsPopularFilmsMostLikedFirst() throws Exception {
+        mockMvc.perform(put("/films/3/like/1")).andExpect(status().isOk());
+        mockMvc.perform(put("/films/3/like/2")).andExpect(status().isOk());
+        mockMvc.perform(put("/films/2/like/1")).andExpect(status().isOk());
+
+        List<JsonNode> films = stream(get("/films/popular?count=2"));
+
+        assertEquals(2, films.size());
+        assertEquals(3, films.get(0).get("id").asInt());
+        assertEquals(2, films.get(0).get("likes").size());
+        assertEquals(2, films.get(1).get("id").asInt());
+    }
+
+    @Test
+    void streamsFoundFilms() throws Exception {
+        List<JsonNode> films = stream(get("/films/search?query=SECOND&by=title"));
+
+        assertEquals(1, films.size());
+        assertEquals("second film", films.get(0).get("name").asText());
+    }
+
+    @Test
+    void streamsFilmById() throws Exception {
+        List<JsonNode> films = stream(get("/films/2"));
+
+        assertEquals(1, films.size());
+        assertEquals("second film", films.get(0).get("name").asText());
+    }
+
+    @Test
+    void unknownFilmIsNotFound() throws Exception {
+        MvcResult result = mockMvc.perform(get("/films/99").accept(NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void streamsFeedOfUser() throws Exception {
+        mockMvc.perform(put("/films/1/like/2")).andExpect(status().isOk());
+        mockMvc.perform(delete("/films/1/like/2")).andExpect(status().isOk());
+
+        List<JsonNode> events = stream(get("/users/2/feed"));
+
+        assertEquals(2, events.size());
+        assertEquals("ADD", events.get(0).get("operation").asText());
+        assertEquals("REMOVE", events.get(1).get("operation").asText());
+        assertEquals(1, stream(get("/users/2/feed?sinceEventId=" + events.get(0).get("eventId").asInt())).size());
+    }
+
+    @Test
+    void feedOfUnknownUserIsNotFound() throws Exception {
+        MvcResult result = mockMvc.perform(get("/users/99/feed").accept(NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void jsonRequestsAreServedByBlockingPath() throws Exception {
+        mockMvc.perform(get("/films").accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.*", hasSize(3)));
+    }
+
+    private List<JsonNode> stream(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request.accept(NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(NDJSON))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        List<JsonNode> elements = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            if (!line.isBlank()) {
+                elements.add(objectMapper.readTree(line));
+            }
+        }
+        return elements;
+    }
+}
@@ -11,8 +11,10 @@ import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.time.LocalDate;
 
@@ -32,6 +34,8 @@ class UserControllerTest {
     private MockMvc mockMvc;
     @Autowired
     private ObjectMapper objectMapper;
+    @Autowired
+    private UserService userService;
 
     @Test
     void creates_newUser_andStatusIs200() throws Exception {
@@ -48,6 +52,57 @@ class UserControllerTest {
         ).andExpect(status().is(200));
     }
 
+    @Test
+    void returns_usersPageAfterCursor() throws Exception {
+        String cursor = mockMvc.perform(get("/users?limit=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.*", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andReturn().getResponse().getHeader("X-Next-Cursor");
+
+        mockMvc.perform(get("/users?limit=5&after=" + cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.*", hasSize(2)))
+                .andExpect(jsonPath("$[0].id").value(2));
+    }
+
+    @Test
+    void returns_usersWithoutFriends_inSummaryView() throws Exception {
+        mockMvc.perform(put("/users/1/friends/2"));
+
+        mockMvc.perform(get("/users?view=summary&limit=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].login").exists())
+                .andExpect(jsonPath("$[0].friends").doesNotExist());
+        mockMvc.perform(get("/users?limit=1"))
+                .andExpect(jsonPath("$[0].friends[0]").value(2));
+    }
+
+    @Test
+    void returns_newFeedEvent_toWaitingLongPoll() throws Exception {
+        MvcResult result = mockMvc.perform(get("/users/1/feed?sinceEventId=0&waitSeconds=10"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        userService.addFriend(1, 2);
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.*", hasSize(1)))
+                .andExpect(jsonPath("$[0].entityId").value(2));
+    }
+
+    @Test
+    void returns_emptyFeed_whenLongPollTimesOut() throws Exception {
+        MvcResult result = mockMvc.perform(get("/users/1/feed?waitSeconds=1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.*", hasSize(0)));
+    }
+
     @Test
     void updates_presentedUser_inUsersList_andStatusIs200() throws Exception {
         User u2 = new User();
@@ -184,6 +239,22 @@ class UserControllerTest {
 
     }
 
+    @Test
+    void checkFriendList_ofSeveralFriends_isLoadedWithinBudget() throws Exception {
+        mockMvc.perform(put("/users/1/friends/2"));
+        mockMvc.perform(put("/users/1/friends/3"));
+        mockMvc.perform(put("/users/2/friends/3"));
+
+        //User check, friend ids, friends and their friend lists, whatever the number of friends
+        mockMvc.perform(get("/users/1/friends"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Db-Roundtrips", "4"))
+                .andExpect(jsonPath("$.*", hasSize(2)))
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[0].friends", hasSize(1)))
+                .andExpect(jsonPath("$[1].id").value(3));
+    }
+
     @Test
     void createCommonFriends_andCommonFriendsNotEmpty() throws Exception {
         mockMvc.perform(put("/users/1/friends/2"));
@@ -0,0 +1,166 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SortedIntSetTest {
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void test_addKeepsIdsSortedAndDistinct() {
+        SortedIntSet set = new SortedIntSet();
+
+        assertTrue(set.add(5));
+        assertTrue(set.add(9));
+        assertTrue(set.add(1));
+        assertFalse(set.add(5));
+        assertFalse(set.add(1));
+
+        assertEquals(3, set.size());
+        assertThat(set).containsExactly(1, 5, 9);
+        assertThat(set.toIntArray()).containsExactly(1, 5, 9);
+    }
+
+    @Test
+    @DisplayName("Check that ids out of order in a large set are buffered and merged in order")
+    void test_addOutOfOrderToLargeSet() {
+        SortedIntSet set = evenIds();
+        int size = set.size();
+
+        assertTrue(set.add(7));
+        assertTrue(set.add(3));
+        assertFalse(set.add(3), "duplicate of a buffered id added");
+        assertFalse(set.add(4), "duplicate of a sorted id added");
+
+        assertEquals(size + 2, set.size());
+        assertThat(set.toIntArray()).startsWith(0, 2, 3, 4, 6, 7, 8);
+        assertEquals(size + 2, set.toIntArray().length);
+    }
+
+    @Test
+    @DisplayName("Check that ids added in random order end up as in a TreeSet")
+    void test_addInRandomOrder() {
+        List<Integer> ids = IntStream.range(0, 3 * SortedIntSet.DIRECT_INSERT_LIMIT).boxed()
+                .collect(Collectors.toList());
+        Collections.shuffle(ids, new Random(42));
+        SortedIntSet set = new SortedIntSet();
+        TreeSet<Integer> expected = new TreeSet<>();
+
+        for (Integer id : ids) {
+            assertEquals(expected.add(id), set.add(id));
+            assertEquals(expected.add(id), set.add(id));
+            assertEquals(expected.size(), set.size());
+        }
+
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(set));
+    }
+
+    @Test
+    void test_contains() {
+        SortedIntSet set = evenIds();
+        set.add(15);
+
+        assertTrue(set.contains(10));
+        assertTrue(set.contains(15), "buffered id not found");
+        assertTrue(set.contains((Object) 30));
+        assertFalse(set.contains(25));
+        assertFalse(set.contains("10"));
+    }
+
+    @Test
+    void test_remove() {
+        SortedIntSet set = evenIds();
+        int size = set.size();
+        set.add(15);
+
+        assertTrue(set.remove(20));
+        assertTrue(set.remove(15), "buffered id not removed");
+        assertFalse(set.remove(15));
+        assertFalse(set.remove((Object) "10"));
+
+        assertEquals(size - 1, set.size());
+        assertThat(set.toIntArray()).startsWith(0, 2, 4, 6, 8, 10, 12, 14, 16, 18, 22);
+    }
+
+    @Test
+    void test_iteratorRemove() {
+        SortedIntSet set = SortedIntSet.of(4, 3, 2, 1, 0);
+
+        Iterator<Integer> iterator = set.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+
+        assertThat(set).containsExactly(1, 3);
+    }
+
+    @Test
+    void test_equalsOtherSets() {
+        SortedIntSet set = evenIds();
+        set.add(1);
+        Set<Integer> hashSet = new HashSet<>(set);
+
+        assertEquals(hashSet, set);
+        assertEquals(set, hashSet);
+        assertEquals(hashSet.hashCode(), set.hashCode());
+        assertEquals(new SortedIntSet(hashSet), set);
+        hashSet.remove(1);
+        assertFalse(set.equals(hashSet));
+    }
+
+    @Test
+    void test_jsonRoundTrip() throws Exception {
+        SortedIntSet set = SortedIntSet.of(7, 3);
+        set.add(5);
+
+        String json = objectMapper.writeValueAsString(set);
+
+        assertEquals("[3,5,7]", json);
+        assertEquals(set, objectMapper.readValue("[7,3,5,3]", SortedIntSet.class));
+        assertEquals(SortedIntSet.class, objectMapper.readValue(json, SortedIntSet.class).getClass());
+
+        SortedIntSet large = evenIds();
+        large.add(1);
+        assertEquals(large, objectMapper.readValue(objectMapper.writeValueAsString(large), SortedIntSet.class));
+    }
+
+    @Test
+    void test_jsonRoundTripOfFilmLikes() throws Exception {
+        Film film = new Film();
+        film.setName("film");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setLikes(new HashSet<>(List.of(3, 1, 2)));
+
+        Film read = objectMapper.readValue(objectMapper.writeValueAsString(film), Film.class);
+
+        assertEquals(film, read);
+        assertThat(read.getLikes()).isInstanceOf(SortedIntSet.class).containsExactly(1, 2, 3);
+    }
+
+    /**
+     * Even ids above the direct insert limit, so odd ids added to the set are buffered.
+     */
+    private static SortedIntSet evenIds() {
+        return SortedIntSet.of(IntStream.range(0, SortedIntSet.DIRECT_INSERT_LIMIT + 1).map(i -> i * 2).toArray());
+    }
+}
@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.storages;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.service.EventService;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {"filmorate.events.writer.mode=FIRE_AND_FORGET",
+        "filmorate.events.writer.queue-capacity=64",
+        "filmorate.events.writer.batch-size=16"})
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@Sql(scripts = {"file:src/test/resources/test-schema.sql",
+        "file:src/test/resources/test-data-users-films.sql"})
+class EventDbStorageFireAndForgetTest {
+    private final EventService eventService;
+
+    @Test
+    void shouldReturnAllQueuedEventsInFeedRightAfterWriting() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 500; i++) {
+            int entityId = i;
+            executor.execute(() -> eventService.addNewEvent(1, entityId, Event.EventType.LIKE,
+                    Event.Operation.ADD, "films"));
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        List<Event> events = eventService.getFeedByUserId(1);
+
+        assertEquals(500, events.size(), "Feed size incorrect");
+    }
+}
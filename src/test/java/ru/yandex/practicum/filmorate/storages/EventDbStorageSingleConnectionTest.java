@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.storages;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.service.EventService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * The like transaction holds the only pooled connection, which the event writer needs to write its event.
+ * Flyway migrates the database over a connection of its own, outside the pool.
+ */
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:single-connection;DB_CLOSE_DELAY=-1",
+        "spring.flyway.url=jdbc:h2:mem:single-connection;DB_CLOSE_DELAY=-1",
+        "spring.flyway.user=${spring.datasource.username}",
+        "spring.flyway.password=${spring.datasource.password}",
+        "filmorate.datasource.pool.maximum-size=1",
+        "filmorate.datasource.pool.minimum-idle=1",
+        "filmorate.datasource.pool.connection-timeout=2s",
+        "filmorate.events.writer.mode=WAIT_FOR_FLUSH",
+        "filmorate.events.writer.flush-timeout=10000"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@Sql(scripts = {"file:src/test/resources/test-schema.sql",
+        "file:src/test/resources/test-data-users-films.sql"})
+class EventDbStorageSingleConnectionTest {
+    private final FilmService filmService;
+    private final EventService eventService;
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+
+    @Test
+    void shouldWriteEventOfTransactionHoldingTheOnlyConnection() throws SQLException {
+        assertEquals(1, dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize(), "Pool size incorrect");
+
+        //Waiting for the flush while the transaction holds the connection would fail the write after 2 s
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> filmService.addLike(1, 1));
+
+        //Read without waiting for pending events, the like has waited for its event to be written
+        Integer written = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM events WHERE user_id = 1", Integer.class);
+        assertEquals(1, written, "Event not written when the like returned");
+        List<Event> events = eventService.getFeedByUserId(1);
+        assertEquals(1, events.size(), "Feed size incorrect");
+        assertEquals(Event.EventType.LIKE, events.get(0).getEventType());
+    }
+}
@@ -8,6 +8,8 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.Review;
@@ -15,9 +17,12 @@ import ru.yandex.practicum.filmorate.service.EventService;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.ReviewService;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.event.EventBatchWriter;
+import ru.yandex.practicum.filmorate.storage.event.EventStorage;
 
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.Date;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -36,6 +41,9 @@ public class EventDbStorageTest {
     private final FilmService filmService;
     private final ReviewService reviewService;
     private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final EventStorage eventStorage;
+    private final EventBatchWriter eventWriter;
 
     @Test
     void shouldReturnEmptyFeedWhenNoEvents() {
@@ -43,6 +51,20 @@ public class EventDbStorageTest {
         assertEquals(0, events.size(), "Feed not empty");
     }
 
+    @Test
+    void shouldReturnFeedPageAfterSinceEventId() {
+        userService.addFriend(1, 2);
+        userService.deleteFriend(1, 2);
+        userService.addFriend(1, 3);
+        int firstEventId = eventService.getFeedByUserId(1).get(0).getEventId();
+
+        List<Event> events = eventService.getFeedByUserId(1, firstEventId, 1);
+
+        assertEquals(1, events.size(), "Feed size incorrect");
+        assertEquals(Event.Operation.REMOVE, events.get(0).getOperation());
+        assertEquals(0, eventService.getFeedByUserId(1, firstEventId + 2, null).size());
+    }
+
     @Test
     void shouldReturnFeedWithTwoEventsWhenFriendAddedThenRemoved() {
         userService.addFriend(1, 2);
@@ -115,6 +137,48 @@ public class EventDbStorageTest {
         assertEquals(0, events.size(), "Feed not empty");
     }
 
+    @Test
+    void shouldNotWriteEventOfRolledBackTransaction() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            eventService.addNewEvent(1, 1, Event.EventType.LIKE, Event.Operation.ADD, "films");
+            status.setRollbackOnly();
+        });
+
+        List<Event> events = eventService.getFeedByUserId(1);
+        assertEquals(0, events.size(), "Feed not empty");
+    }
+
+    @Test
+    void shouldRejectEventsOnceWriterIsStopped() throws InterruptedException {
+        EventBatchWriter writer = new EventBatchWriter(eventStorage, EventBatchWriter.Mode.WAIT_FOR_FLUSH,
+                16, 16, 100, 1000);
+        writer.start();
+        writer.stop();
+
+        Event event = Event.builder()
+                .userId(1)
+                .entityId(1)
+                .eventType(Event.EventType.LIKE)
+                .operation(Event.Operation.ADD)
+                .eventTime(Date.from(Instant.now()))
+                .entityTableName("films")
+                .build();
+        assertThrows(IllegalStateException.class, () -> writer.write(event));
+    }
+
+    @Test
+    void shouldForgetLongPollWaitersOnceTheyTimeOutOrReturn() throws InterruptedException {
+        assertEquals(List.of(), eventService.waitForFeed(1, 0, null, 1).join(), "Feed not empty");
+        for (int attempt = 0; attempt < 100 && eventWriter.getWaitingUsers() > 0; attempt++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, eventWriter.getWaitingUsers(), "Timed out waiter not removed");
+
+        userService.addFriend(1, 2);
+        assertEquals(1, eventService.waitForFeed(1, 0, null, 10).join().size(), "Feed size incorrect");
+        assertEquals(0, eventWriter.getWaitingUsers(), "Waiter of an answered poll not removed");
+    }
+
     @Test
     void shouldThrowNotFoundExceptionWhenUserIdIncorrect() {
         final NotFoundException e = assertThrows(NotFoundException.class,
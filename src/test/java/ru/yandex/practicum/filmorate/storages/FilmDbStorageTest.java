@@ -4,21 +4,39 @@ import lombok.RequiredArgsConstructor;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.exceptions.DuplicateEventException;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.QueryShapeRegistry;
+import ru.yandex.practicum.filmorate.storage.director.DirectorDbStorage;
 import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmRecommendationEngine;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -36,6 +54,11 @@ import static ru.yandex.practicum.filmorate.model.enums.SearchParam.TITLE;
 class FilmDbStorageTest {
     private final FilmDbStorage filmStorage;
     private final UserDbStorage userStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final JdbcTemplate jdbcTemplate;
+    private final DirectorDbStorage directorStorage;
+    private final FilmRecommendationEngine recommendationEngine;
+    private final QueryShapeRegistry queryShapes;
 
     @Test
     void testFindById() {
@@ -57,6 +80,18 @@ class FilmDbStorageTest {
         assertEquals(3, filmList.get().size());
     }
 
+    @Test
+    @DisplayName("Check that streamed films are the same as loaded at once")
+    void test_streamAllFilms() {
+        filmStorage.addLike(1, 2);
+        filmStorage.addLike(3, 1);
+        List<Film> streamed = new ArrayList<>();
+
+        filmStorage.streamAll(streamed::add);
+
+        assertEquals(filmStorage.getAll(), streamed);
+    }
+
     @Test
     void test_filmNotFound() {
         NotFoundException nfe = assertThrows(NotFoundException.class, () -> filmStorage.findById(16));
@@ -117,6 +152,97 @@ class FilmDbStorageTest {
                 .hasFieldOrPropertyWithValue("likes", Set.of());
     }
 
+    @Test
+    @DisplayName("Check that rate matches likes count under concurrent likes and duplicates")
+    void test_concurrentLikesKeepRateConsistent() throws Exception {
+        int usersCount = 1000;
+        jdbcTemplate.batchUpdate("insert into users(email, login, name, birthday) values (?, ?, ?, ?)",
+                IntStream.range(0, usersCount)
+                        .mapToObj(i -> new Object[]{"load" + i + "@mail.ru", "load" + i, "load" + i,
+                                LocalDate.of(1990, 1, 1)})
+                        .collect(Collectors.toList()));
+        List<Integer> userIds = jdbcTemplate.queryForList("select id from users", Integer.class);
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        AtomicInteger duplicates = new AtomicInteger();
+        List<Callable<Void>> likes = new ArrayList<>();
+        for (Integer userId : userIds) {
+            for (int attempt = 0; attempt < 2; attempt++) {
+                likes.add(() -> {
+                    try {
+                        filmStorage.addLike(1, userId);
+                    } catch (DuplicateEventException e) {
+                        duplicates.incrementAndGet();
+                    }
+                    return null;
+                });
+            }
+        }
+        for (Future<Void> like : executor.invokeAll(likes)) {
+            like.get();
+        }
+        executor.shutdown();
+
+        Integer likesCount = jdbcTemplate.queryForObject(
+                "select count(*) from films_likes where film_id = 1", Integer.class);
+        assertEquals(userIds.size(), likesCount);
+        assertEquals(userIds.size(), duplicates.get());
+        assertEquals(likesCount, filmStorage.findById(1).getRate());
+    }
+
+    @Test
+    @DisplayName("Check that likes racing the first index load are counted exactly once")
+    void test_likesDuringIndexLoadAreNotLost() throws Exception {
+        int usersCount = 200;
+        jdbcTemplate.batchUpdate("insert into users(email, login, name, birthday) values (?, ?, ?, ?)",
+                IntStream.range(0, usersCount)
+                        .mapToObj(i -> new Object[]{"load" + i + "@mail.ru", "load" + i, "load" + i,
+                                LocalDate.of(1990, 1, 1)})
+                        .collect(Collectors.toList()));
+        List<Integer> userIds = jdbcTemplate.queryForList("select id from users", Integer.class);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (Integer userId : userIds) {
+            tasks.add(() -> {
+                filmStorage.addLike(userId % 2 == 0 ? 1 : 2, userId);
+                return null;
+            });
+        }
+        tasks.add(2, () -> {
+            popularityIndex.getTop(10, FilmPopularityIndex.ANY, FilmPopularityIndex.ANY);
+            return null;
+        });
+        for (Future<Void> task : executor.invokeAll(tasks)) {
+            task.get();
+        }
+        executor.shutdown();
+
+        List<Film> films = new ArrayList<>(filmStorage.getAll());
+        films.sort(Comparator.comparingInt(Film::getRate).reversed().thenComparingInt(Film::getId));
+        assertEquals(films.stream().map(Film::getId).collect(Collectors.toList()),
+                popularityIndex.getTop(films.size(), FilmPopularityIndex.ANY, FilmPopularityIndex.ANY));
+        assertEquals(jdbcTemplate.queryForObject("select count(*) from films_likes where film_id = 1",
+                Integer.class), filmStorage.findById(1).getRate());
+    }
+
+    @Test
+    @DisplayName("Check that id lists of one power of two bucket share a padded statement")
+    void test_getFilmsByIdListReusesPaddedStatement() {
+        assertThat(filmStorage.getFilmsByIdList(List.of(3, 1, 2)))
+                .extracting(Film::getId)
+                .containsExactlyInAnyOrder(1, 2, 3);
+        assertThat(filmStorage.getFilmsByIdList(List.of(2, 3)))
+                .extracting(Film::getId)
+                .containsExactlyInAnyOrder(2, 3);
+        assertThat(filmStorage.getFilmsByIdList(List.of(3, 2, 1, 4)))
+                .extracting(Film::getId)
+                .containsExactlyInAnyOrder(1, 2, 3);
+
+        assertEquals(1.0 / 3, queryShapes.getReuseRate("films.byIds"));
+        assertThat(QueryShapeRegistry.padded(List.of(3, 1, 2), 2)).containsExactly(3, 1, 2, 2, 3, 1, 2, 2);
+    }
+
     @Test
     void test_getFilmsTopByLikes() {
         filmStorage.addLike(2, 2);
@@ -140,6 +266,18 @@ class FilmDbStorageTest {
                 .isEqualTo(List.of(filmStorage.findById(3)));
     }
 
+    @Test
+    void test_getFilmsTopByYearAfterReleaseDateChange() {
+        Film film = filmStorage.findById(3);
+        film.setReleaseDate(LocalDate.of(1999, 12, 31));
+        filmStorage.update(film);
+
+        assertThat(filmStorage.getFilmsTop(2,-1,2020)).isEmpty();
+        assertThat(filmStorage.getFilmsTop(2,-1,1999))
+                .extracting(Film::getId)
+                .isEqualTo(List.of(3));
+    }
+
     @Test
     void test_getFilmsTopByLikesWithGenreAndYear() {
         assertThat(filmStorage.getFilmsTop(2,2,2021))
@@ -147,6 +285,41 @@ class FilmDbStorageTest {
                 .isEqualTo(List.of(filmStorage.findById(2)));
     }
 
+    @Test
+    @DisplayName("Check that films of a page get only their own genres, directors and likes")
+    void test_getFilmsTopHydratesOnlyPageFilms() {
+        filmStorage.addLike(1, 2);
+        filmStorage.addLike(1, 3);
+        filmStorage.addLike(3, 1);
+
+        List<Film> top = filmStorage.getFilmsTop(1, -1, -1);
+
+        assertEquals(1, top.size());
+        assertThat(top.get(0))
+                .hasFieldOrPropertyWithValue("id", 1)
+                .hasFieldOrPropertyWithValue("likes", Set.of(2, 3));
+        assertEquals(2, top.get(0).getGenres().size());
+        assertEquals(2, top.get(0).getDirectors().size());
+    }
+
+    @ParameterizedTest
+    @CsvSource({"-1, -1", "2, -1", "-1, 2021", "2, 2020", "1, 2022"})
+    @DisplayName("Check that popularity index ranks films the same way as the database")
+    void test_popularityIndexMatchesDatabase(int genreId, int year) {
+        popularityIndex.getTop(10, genreId, year);
+        filmStorage.addLike(2, 1);
+        filmStorage.addLike(3, 1);
+        filmStorage.addLike(3, 2);
+        filmStorage.addLike(1, 3);
+        filmStorage.deleteLike(1, 3);
+
+        List<Integer> expected = filmStorage.getFilmsTop(10, genreId, year).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+
+        assertEquals(expected, popularityIndex.getTop(10, genreId, year));
+    }
+
     @Test
     void test_deleteFilm() {
         filmStorage.deleteById(1);
@@ -157,6 +330,17 @@ class FilmDbStorageTest {
                 .isEqualTo(message);
     }
 
+    @Test
+    void test_existsByIdAfterDelete() {
+        assertThat(filmStorage.existsById(1)).isTrue();
+
+        filmStorage.deleteById(1);
+
+        assertThat(filmStorage.existsById(1)).isFalse();
+        NotFoundException nfe = assertThrows(NotFoundException.class, () -> filmStorage.checkExists(1));
+        assertEquals("film with id 1 not found", nfe.getMessage());
+    }
+
     @ParameterizedTest
     @ValueSource(strings = {"film", "Film", "IL"})
     @DisplayName("Check that film was found case-insensitive")
@@ -219,6 +403,38 @@ class FilmDbStorageTest {
                 .isEqualTo(1);
     }
 
+    @Test
+    @DisplayName("Check that search index follows film changes and folds Cyrillic case and 'ё'")
+    void test_searchFilmAfterFilmChanges() {
+        assertEquals(3, filmStorage.searchFilm("film", List.of(TITLE)).size());
+
+        Film film = filmStorage.findById(1);
+        film.setName("Ёжик в тумане");
+        filmStorage.update(film);
+        filmStorage.deleteById(2);
+
+        assertEquals(1, filmStorage.searchFilm("film", List.of(TITLE)).size());
+        assertEquals(1, filmStorage.searchFilm("ЕЖИК", List.of(TITLE)).get(0).getId());
+        assertEquals(1, filmStorage.searchFilm("ёжик в", List.of(TITLE)).size());
+        assertThat(filmStorage.searchFilm("ежики", List.of(TITLE))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Check that search index follows director changes")
+    void test_searchFilmAfterDirectorChanges() {
+        assertEquals(2, filmStorage.searchFilm("tarantino", List.of(DIRECTOR)).size());
+
+        Director director = directorStorage.findById(1);
+        director.setName("Андрей Тарковский");
+        directorStorage.update(director);
+        directorStorage.deleteById(2);
+
+        assertThat(filmStorage.searchFilm("tarantino", List.of(DIRECTOR))).isEmpty();
+        List<Film> found = filmStorage.searchFilm("тарков", List.of(DIRECTOR));
+        assertEquals(1, found.size());
+        assertEquals(1, found.get(0).getId());
+    }
+
     @Test
     @DisplayName("Check that common film was found")
     void test_getCommonFilms() {
@@ -264,6 +480,35 @@ class FilmDbStorageTest {
         assertEquals(3, recommendations.get(0));
     }
 
+    @Test
+    @DisplayName("Check that recommendations are ranked by neighbour similarity and follow like changes")
+    void test_recommendationEngine() {
+        Film film = filmStorage.findById(1);
+        film.setDirectors(new HashSet<>());
+        filmStorage.create(film);
+        filmStorage.addLike(1, 1);
+        filmStorage.addLike(2, 1);
+        filmStorage.addLike(1, 2);
+        filmStorage.addLike(3, 2);
+        filmStorage.addLike(1, 3);
+        filmStorage.addLike(2, 3);
+        filmStorage.addLike(4, 3);
+
+        assertEquals(List.of(4, 3), recommendationEngine.recommend(1, 10));
+        assertEquals(List.of(4), recommendationEngine.recommend(1, 1));
+
+        filmStorage.deleteLike(2, 3);
+        filmStorage.addLike(3, 3);
+
+        assertEquals(List.of(3, 4), recommendationEngine.recommend(1, 10));
+
+        userStorage.deleteById(2);
+        filmStorage.deleteById(4);
+
+        assertEquals(List.of(3), recommendationEngine.recommend(1, 10));
+        assertThat(recommendationEngine.recommend(2, 10)).isEmpty();
+    }
+
     @Test
     @DisplayName("Check getFilmsByDirectorSortByYear")
     void test_getFilmsByDirectorSortByYear() {
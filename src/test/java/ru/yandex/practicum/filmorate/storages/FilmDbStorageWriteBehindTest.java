@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.storages;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmRateBuffer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"filmorate.likes.write-behind.enabled=true",
+        "filmorate.likes.write-behind.flush-interval=3600000"})
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@Sql(scripts = {"file:src/test/resources/test-schema.sql",
+        "file:src/test/resources/test-data-users-films.sql"})
+class FilmDbStorageWriteBehindTest {
+    private final FilmDbStorage filmStorage;
+    private final FilmRateBuffer rateBuffer;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    void test_pendingRateIsVisibleBeforeFlush() {
+        filmStorage.addLike(1, 1);
+        filmStorage.addLike(1, 2);
+        filmStorage.deleteLike(1, 1);
+
+        assertEquals(0, storedRate(1));
+        assertEquals(1, filmStorage.findById(1).getRate());
+        assertEquals(1, filmStorage.getFilmsTop(1, -1, -1).get(0).getRate());
+    }
+
+    @Test
+    void test_flushWritesRateDeltas() {
+        filmStorage.addLike(1, 1);
+        filmStorage.addLike(1, 2);
+        filmStorage.addLike(2, 3);
+
+        rateBuffer.flush();
+
+        assertEquals(2, storedRate(1));
+        assertEquals(1, storedRate(2));
+        assertEquals(2, filmStorage.findById(1).getRate());
+    }
+
+    @Test
+    void test_cancelledDeltasLeaveNoPendingEntry() {
+        filmStorage.addLike(1, 1);
+        filmStorage.deleteLike(1, 1);
+
+        assertTrue(rateBuffer.getPendingDeltas().isEmpty());
+    }
+
+    @Test
+    void test_readDuringFlushNeitherMissesNorDoublesDelta() {
+        AtomicInteger adding = new AtomicInteger();
+        AtomicInteger added = new AtomicInteger();
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < 2000; i++) {
+                adding.incrementAndGet();
+                rateBuffer.add(1, 1);
+                added.incrementAndGet();
+                rateBuffer.flush();
+            }
+        });
+
+        while (!writer.isDone()) {
+            int lower = added.get();
+            int rate = filmStorage.findById(1).getRate();
+            int upper = adding.get();
+            assertTrue(lower <= rate && rate <= upper,
+                    String.format("rate %d read while it went from %d to %d", rate, lower, upper));
+        }
+        writer.join();
+        assertEquals(2000, storedRate(1));
+    }
+
+    private int storedRate(int filmId) {
+        return jdbcTemplate.queryForObject("select rate from films where id = ?", Integer.class, filmId);
+    }
+}
@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.storages;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmRecommendationSnapshots;
+
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = "filmorate.recommendations.snapshot.refresh-interval=3600000")
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@Sql(scripts = {"file:src/test/resources/test-schema.sql",
+        "file:src/test/resources/test-data-users-films.sql"})
+class FilmRecommendationSnapshotsTest {
+    private final FilmDbStorage filmStorage;
+    private final FilmRecommendationSnapshots snapshots;
+
+    @Test
+    void test_snapshotIsServedUntilRefresh() {
+        Film film = filmStorage.findById(1);
+        film.setDirectors(new HashSet<>());
+        filmStorage.create(film);
+        filmStorage.addLike(1, 1);
+        filmStorage.addLike(1, 2);
+        filmStorage.addLike(3, 2);
+        filmStorage.addLike(1, 3);
+        filmStorage.addLike(4, 3);
+
+        assertEquals(List.of(3, 4), snapshots.get(1, 10));
+
+        filmStorage.addLike(2, 3);
+        filmStorage.addLike(2, 1);
+        filmStorage.addLike(3, 1);
+
+        assertEquals(List.of(4), snapshots.get(1, 10), "stored list without films liked since");
+
+        filmStorage.deleteLike(3, 1);
+        snapshots.refresh();
+
+        assertEquals(List.of(4, 3), snapshots.get(1, 10));
+    }
+
+    @Test
+    void test_likeOfSharedFilmMakesStoredListStale() {
+        filmStorage.addLike(1, 1);
+        filmStorage.addLike(1, 2);
+        filmStorage.addLike(2, 2);
+
+        assertEquals(List.of(2), snapshots.get(1, 10));
+
+        filmStorage.addLike(1, 3);
+        filmStorage.addLike(3, 3);
+
+        assertEquals(List.of(2), snapshots.get(1, 10), "stale list served until refresh");
+
+        snapshots.refresh();
+
+        assertEquals(List.of(2, 3), snapshots.get(1, 10));
+    }
+
+    @Test
+    void test_likeChangeOfNeighbourMakesStoredListStale() {
+        filmStorage.addLike(1, 1);
+        filmStorage.addLike(1, 2);
+        filmStorage.addLike(2, 2);
+
+        assertEquals(List.of(2), snapshots.get(1, 10));
+
+        filmStorage.addLike(3, 2);
+        snapshots.refresh();
+
+        assertEquals(List.of(2, 3), snapshots.get(1, 10), "film liked by the neighbour not recommended");
+
+        filmStorage.deleteLike(2, 2);
+        snapshots.refresh();
+
+        assertEquals(List.of(3), snapshots.get(1, 10), "film unliked by the neighbour still recommended");
+    }
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.storages;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A database created from the schema of before the migrations is baselined at V1, as configured in
+ * application.properties, and must get every index added after it from the later migrations.
+ */
+class FlywayBaselineTest {
+    @Test
+    void test_baselinedDatabaseGetsIndexesOfLaterMigrations() {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:baseline;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("RUNSCRIPT FROM 'classpath:db/migration/V1__schema.sql'");
+
+        Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES " +
+                "WHERE INDEX_NAME = 'EVENTS_USER_ID_EVENT_ID_IDX'", Integer.class), "Feed index not created");
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES " +
+                "WHERE INDEX_NAME = 'FILMS_RATE_ID_IDX'", Integer.class), "Rate index not created");
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+}
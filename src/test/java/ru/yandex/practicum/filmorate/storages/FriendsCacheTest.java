@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.storages;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.storage.user.FriendsCache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Friend changes racing a load of the list, with the friendships table replaced by a list of friend ids.
+ */
+class FriendsCacheTest {
+    private final List<Integer> friendIds = new ArrayList<>(List.of(2));
+    private Runnable duringLoad = () -> {
+    };
+    private int loads;
+    private final FriendsCache cache = new FriendsCache(new JdbcTemplate() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+            loads++;
+            List<T> result = new ArrayList<>((List<T>) friendIds);
+            duringLoad.run();
+            return result;
+        }
+    });
+
+    @Test
+    void test_listLoadedBeforeFriendAddedIsNotStored() {
+        duringLoad = () -> {
+            friendIds.add(3);
+            cache.addFriend(1, 3);
+            duringLoad = () -> {
+            };
+        };
+
+        assertArrayEquals(new int[]{2}, cache.getFriends(1));
+        assertArrayEquals(new int[]{2, 3}, cache.getFriends(1), "reloaded list with the new friend");
+        assertEquals(2, loads);
+    }
+
+    @Test
+    void test_friendAddedToStoredListOnce() {
+        assertArrayEquals(new int[]{2}, cache.getFriends(1));
+        friendIds.add(3);
+        cache.addFriend(1, 3);
+        cache.addFriend(1, 3);
+
+        assertArrayEquals(new int[]{2, 3}, cache.getFriends(1));
+        assertEquals(1, loads);
+    }
+}
@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.storages;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.storage.QueryShapeRegistry;
+import ru.yandex.practicum.filmorate.storage.director.DirectorQueries;
+import ru.yandex.practicum.filmorate.storage.event.EventQueries;
+import ru.yandex.practicum.filmorate.storage.film.FilmQueries;
+import ru.yandex.practicum.filmorate.storage.review.ReviewQueries;
+import ru.yandex.practicum.filmorate.storage.user.UserQueries;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Checks the plans of the storage statements that look rows up by key on the schema built by the migrations.
+ * The statements are the ones the storages send, with their parameters bound. Queries reading whole tables
+ * on purpose, such as the full lists and index warm-ups, are not listed.
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class QueryPlanTest {
+    /**
+     * Table access lines of an H2 plan, such as {@code /* PUBLIC.FILMS.tableScan *\/} or
+     * {@code /* PUBLIC.PRIMARY_KEY_3: ID = 1 *\/}, with the index name and the condition used on it.
+     */
+    private static final Pattern TABLE_ACCESS = Pattern.compile("/\\* PUBLIC\\.([\\w.]+)(: [^\\n]*)? \\*/");
+    private final JdbcTemplate jdbcTemplate;
+
+    static Stream<Arguments> queries() {
+        return Stream.of(
+                Arguments.of("film by id", FilmQueries.FILM_BY_ID, params(1)),
+                Arguments.of("films page", FilmQueries.FILMS_PAGE, params(1, 10)),
+                Arguments.of("films by id list", inList(FilmQueries.FILMS_BY_IDS, 3), padded(1, 1, 2, 3)),
+                Arguments.of("film attributes", inList(FilmQueries.ATTRIBUTES, 2), padded(3, 1, 2)),
+                Arguments.of("film attributes without likes", inList(FilmQueries.ATTRIBUTES_WITHOUT_LIKES, 2),
+                        padded(2, 1, 2)),
+                Arguments.of("top films", FilmQueries.top(false, false, name -> "?"), params(10)),
+                Arguments.of("top films of genre", FilmQueries.top(true, false, name -> "?"), params(1, 10)),
+                Arguments.of("top films of year", FilmQueries.top(false, true, name -> "?"), params(2020, 10)),
+                Arguments.of("top films of genre and year", FilmQueries.top(true, true, name -> "?"),
+                        params(1, 2020, 10)),
+                Arguments.of("films of director by year", FilmQueries.FILMS_OF_DIRECTOR_BY_YEAR, params(1)),
+                Arguments.of("films of director by likes", FilmQueries.FILMS_OF_DIRECTOR_BY_LIKES, params(1)),
+                Arguments.of("like insert", FilmQueries.ADD_LIKE, params(1, 1, 1, 1)),
+                Arguments.of("films liked by users", FilmQueries.FILMS_LIKED_BY_USERS, params(2, 1, 10)),
+                Arguments.of("users with similar interests", UserQueries.USERS_WITH_SIMILAR_INTERESTS, params(1)),
+                Arguments.of("user by id", UserQueries.USER_BY_ID, params(1)),
+                Arguments.of("users page", UserQueries.USERS_PAGE, params(1, 10)),
+                Arguments.of("users by id list", inList(UserQueries.USERS_BY_IDS, 2), padded(1, 1, 2)),
+                Arguments.of("friends of users", inList(UserQueries.FRIENDS_OF_USERS, 2), padded(1, 1, 2)),
+                Arguments.of("friends of user", UserQueries.FRIENDS_OF_USER, params(1)),
+                Arguments.of("friend ids", UserQueries.FRIEND_IDS, params(1)),
+                Arguments.of("sorted friend ids", UserQueries.SORTED_FRIEND_IDS, params(1)),
+                Arguments.of("friendship check", UserQueries.FRIENDSHIP, params(2, 1)),
+                //Run by the foreign key of friendships when a user is deleted, not by a storage
+                Arguments.of("friendship removal cascade",
+                        "SELECT user_id FROM friendships WHERE friend_id = ?", params(2)),
+                Arguments.of("reviews of film", ReviewQueries.REVIEWS_OF_FILM, params(1, 10)),
+                Arguments.of("reviews", ReviewQueries.REVIEWS, params(10)),
+                Arguments.of("review by id", ReviewQueries.REVIEW_BY_ID, params(1)),
+                Arguments.of("review rate check", ReviewQueries.REVIEW_RATE, params(1, 1)),
+                Arguments.of("feed", EventQueries.FEED, params(1)),
+                Arguments.of("feed page", EventQueries.FEED_PAGE, params(1, 1, 10)),
+                Arguments.of("director by id", DirectorQueries.DIRECTOR_BY_ID, params(1)),
+                Arguments.of("directors of film", DirectorQueries.DIRECTORS_OF_FILM, params(1)));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("queries")
+    void test_queryDoesNotScanTables(String name, String query, Object[] params) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + query, String.class, params);
+
+        Matcher access = TABLE_ACCESS.matcher(plan);
+        while (access.find()) {
+            boolean tableScan = access.group(1).endsWith(".tableScan");
+            //An index read without a condition is a full scan too, unless it is read in order up to a limit
+            boolean indexScan = access.group(2) == null
+                    && !(plan.contains("/* index sorted */") && plan.contains("FETCH FIRST"));
+            assertFalse(tableScan || indexScan, () -> name + " reads a whole table:\n" + plan);
+        }
+    }
+
+    private static Object[] params(Object... params) {
+        return params;
+    }
+
+    /**
+     * Statement of a storage template for the given number of ids, as the storage builds it.
+     */
+    private static String inList(String template, int size) {
+        return new QueryShapeRegistry(new SimpleMeterRegistry()).inList("plan", template, size);
+    }
+
+    private static Object[] padded(int lists, Integer... ids) {
+        return QueryShapeRegistry.padded(List.of(ids), lists);
+    }
+}
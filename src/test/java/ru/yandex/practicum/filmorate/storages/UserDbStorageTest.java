@@ -5,16 +5,19 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.jdbc.Sql;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.JdbcRoundTrips;
 import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -29,6 +32,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 class UserDbStorageTest {
     private final UserDbStorage userStorage;
     private final FilmDbStorage filmStorage;
+    private final JdbcTemplate jdbcTemplate;
 
     @Test
     void test_FindById() {
@@ -73,6 +77,28 @@ class UserDbStorageTest {
                 .isEqualTo(message);
     }
 
+    @Test
+    void test_existsById() {
+        assertThat(userStorage.existsById(1)).isTrue();
+
+        long roundTrips = JdbcRoundTrips.get();
+        assertThat(userStorage.existsById(5)).isFalse();
+        assertEquals(roundTrips, JdbcRoundTrips.get());
+
+        User user = new User();
+        user.setLogin("user4");
+        user.setEmail("test4@mail.ru");
+        user.setBirthday(LocalDate.now());
+        assertThat(userStorage.existsById(userStorage.create(user).getId())).isTrue();
+
+        //A row removed behind the storage's back is still in the bitmap, the database has the last word
+        jdbcTemplate.update("DELETE FROM users WHERE id = 2");
+        assertThat(userStorage.existsById(2)).isFalse();
+
+        userStorage.deleteById(3);
+        assertThat(userStorage.existsById(3)).isFalse();
+    }
+
     @Test
     void test_updateUser() {
         Optional<User> userToUpdate = Optional.ofNullable(userStorage.findById(1));
@@ -110,6 +136,34 @@ class UserDbStorageTest {
                 .contains(userStorage.findById(2));
     }
 
+    @Test
+    void test_getMutualFriendsFollowsFriendChanges() {
+        for (int i = 0; i < 40; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@mail.ru");
+            user.setLogin("login" + i);
+            user.setName("user" + i);
+            user.setBirthday(LocalDate.of(1990, 1, 1));
+            userStorage.create(user);
+        }
+        for (int friendId = 3; friendId <= 43; friendId++) {
+            userStorage.addFriend(2, friendId);
+        }
+        userStorage.addFriend(1, 20);
+
+        assertEquals(List.of(20), ids(userStorage.getMutualFriendsSet(1, 2)));
+
+        userStorage.addFriend(1, 3);
+        userStorage.deleteFriend(2, 20);
+
+        assertEquals(List.of(3), ids(userStorage.getMutualFriendsSet(1, 2)));
+        assertEquals(List.of(3), ids(userStorage.getMutualFriendsSet(2, 1)));
+
+        userStorage.deleteById(3);
+
+        assertThat(userStorage.getMutualFriendsSet(1, 2)).isEmpty();
+    }
+
     @Test
     void test_deleteFriends() {
         userStorage.addFriend(1, 2);
@@ -143,4 +197,8 @@ class UserDbStorageTest {
         assertEquals(2, usersWithSimilarInterests.size());
         assertEquals(2, usersWithSimilarInterests.get(0));
     }
-}
\ No newline at end of file
+
+    private static List<Integer> ids(List<User> users) {
+        return users.stream().map(User::getId).collect(Collectors.toList());
+    }
+}
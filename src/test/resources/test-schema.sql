@@ -47,6 +47,7 @@ create table if not exists FILMS
     DURATION     INTEGER,
     RATE         INTEGER DEFAULT 0,
     MPA_RATE_ID  INTEGER,
+    RELEASE_YEAR INTEGER generated always as (EXTRACT(YEAR FROM RELEASE_DATE)),
     constraint FILMS_FK
     foreign key (MPA_RATE_ID) references MPA_RATING
     );
@@ -92,6 +93,14 @@ CREATE TABLE IF NOT EXISTS FILMS_DIRECTORS
     PRIMARY KEY (FILM_ID, DIRECTOR_ID)
 );
 
+--indexes of V3__query_indexes.sql and V4__films_release_year.sql for the recreated tables
+create index if not exists FILMS_RATE_ID_IDX on FILMS (RATE desc, ID);
+create index if not exists FILMS_RELEASE_YEAR_RATE_ID_IDX on FILMS (RELEASE_YEAR, RATE desc, ID);
+create index if not exists FILMS_LIKES_USER_ID_FILM_ID_IDX on FILMS_LIKES (USER_ID, FILM_ID);
+create index if not exists FILMS_GENRES_GENRE_ID_FILM_ID_IDX on FILMS_GENRES (GENRE_ID, FILM_ID);
+create index if not exists FILMS_DIRECTORS_DIRECTOR_ID_FILM_ID_IDX on FILMS_DIRECTORS (DIRECTOR_ID, FILM_ID);
+create index if not exists FRIENDSHIPS_FRIEND_ID_USER_ID_IDX on FRIENDSHIPS (FRIEND_ID, USER_ID);
+
 --genres insert
 merge into GENRES(GENRE_ID, name)
     values (1, 'Комедия');